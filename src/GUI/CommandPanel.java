@@ -10,6 +10,8 @@ import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.VPos;
 
+import dispatch.OperatingMode;
+
 /**
  * CommandPanel represents the master control panel for the entire elevator system.
  * It provides system-wide controls like START, STOP, RESET, Fire Mode, and
@@ -57,7 +59,8 @@ public class CommandPanel extends GridPane {
         RowConstraints floorRow = new RowConstraints(30);
         floorRow.setValignment(VPos.CENTER);
         getRowConstraints().addAll(row0, row1, row2, row3);
-        for (int i = 0; i < 10; i++) {
+        // One row per floor so the buttons line up with the shafts
+        for (int i = 0; i < api.getFloorCount(); i++) {
             getRowConstraints().add(floorRow);
         }
 
@@ -135,7 +138,7 @@ public class CommandPanel extends GridPane {
      * Fire Button Function.
      */
     private void fireAction() {
-        if (api.getSystemMode().equals("FIRE")) {
+        if (api.getMode() == OperatingMode.FIRE) {
             api.sendClearFireCommand();
         } else {
             api.sendFireCommand();
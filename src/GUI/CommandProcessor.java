@@ -0,0 +1,223 @@
+package GUI;
+
+import Message.Channels;
+import Message.Commands;
+import Message.Message;
+import bus.SoftwareBus;
+import dispatch.Direction;
+import javafx.application.Platform;
+
+/**
+ * Turns Commands arriving on the bus into ElevatorAPI calls.
+ * System-wide commands come on Channels.SYSTEM; START_ELEVATOR,
+ * STOP_ELEVATOR and ADD_STOPS come on the car's own topic (Channels.car(id)).
+ * Set commands (ADD_STOPS, ENABLE_CARS, DISABLE_CARS, CLEAR_HALL_CALLS) are
+ * applied whole within one FX task, so no snapshot or listener ever sees
+ * half of one. A set that takes several windows (see Commands.setBodies) is
+ * held back by the reader until its last window is in, then goes into the
+ * batch as one unit.
+ *
+ * A reader thread drains the bus into a preallocated int buffer (topic and
+ * body per command) and, once the bus is empty, hands the whole batch to the
+ * FX thread in a single Platform.runLater. There each command goes through a
+ * handler table indexed by opcode. Unknown opcodes (and STATUS, which the
+ * command center itself sends) have no handler and are skipped.
+ */
+public class CommandProcessor {
+
+    /**
+     * Applies one command. car is the elevator id for commands sent on a car
+     * topic, 0 for the system channel.
+     */
+    @FunctionalInterface
+    interface Handler {
+        void apply(int car, int arg);
+    }
+
+    // Commands held per FX hop; the reader waits when a batch is this big
+    private static final int BATCH = 4096;
+    private static final int OPCODES = 1 << 4;
+    // Reader backs off up to this long while the bus is quiet
+    private static final long MAX_IDLE_MILLIS = 5;
+
+    private final ElevatorAPI api;
+    private final SoftwareBus bus;
+    private final int cars;
+    private final Handler[] handlers = new Handler[OPCODES];
+
+    // topic, body pairs; pending is filled by the reader, applying is read on the FX thread
+    private int[] pending = new int[BATCH * 2];
+    private int[] applying = new int[BATCH * 2];
+    private int pendingCount;
+    private boolean hopScheduled;
+    // Reader thread only: windows of a set still waiting for the rest, per topic
+    private final int[][] openSets;
+    private final int[] openSetSizes;
+    private final Runnable applyBatch = this::applyBatch;
+
+    public CommandProcessor(ElevatorAPI api, SoftwareBus bus) {
+        this.api = api;
+        this.bus = bus;
+        this.cars = api.getBuilding().getCars();
+        this.openSets = new int[cars + 1][Commands.SET_WINDOWS];
+        this.openSetSizes = new int[cars + 1];
+        handlers[Commands.STOP] = (car, arg) -> api.sendStopCommand();
+        handlers[Commands.START] = (car, arg) -> api.sendStartCommand();
+        handlers[Commands.RESET] = (car, arg) -> api.sendResetCommand();
+        handlers[Commands.FIRE_CLEAR] = (car, arg) -> api.sendClearFireCommand();
+        handlers[Commands.MODE] = (car, arg) -> api.toggleAutoMode();
+        handlers[Commands.START_ELEVATOR] = (car, arg) -> api.setElevatorEnabled(car, true);
+        handlers[Commands.STOP_ELEVATOR] = (car, arg) -> api.setElevatorEnabled(car, false);
+        handlers[Commands.HALL_CALL] = (car, arg) -> {
+            int floor = Commands.hallCallFloor(arg);
+            Direction direction = Direction.fromCode(Commands.hallCallDirCode(arg));
+            if (floor >= 1 && floor <= api.getFloorCount() && direction != Direction.IDLE) {
+                api.registerHallCall(floor, direction);
+            }
+        };
+        handlers[Commands.ADD_STOPS] = (car, arg) -> {
+            if (car == 0) {
+                return;
+            }
+            int base = Commands.setBase(arg);
+            for (int bits = Commands.setBits(arg); bits != 0; bits &= bits - 1) {
+                api.sendFloorRequest(car, base + Integer.numberOfTrailingZeros(bits));
+            }
+        };
+        handlers[Commands.ENABLE_CARS] = (car, arg) -> setCars(arg, true);
+        handlers[Commands.DISABLE_CARS] = (car, arg) -> setCars(arg, false);
+        handlers[Commands.CLEAR_HALL_CALLS] = (car, arg) ->
+                api.clearHallCalls(Commands.rangeFirst(arg), Commands.rangeLast(arg));
+    }
+
+    private void setCars(int arg, boolean enabled) {
+        int base = Commands.setBase(arg);
+        for (int bits = Commands.setBits(arg); bits != 0; bits &= bits - 1) {
+            api.setElevatorEnabled(base + Integer.numberOfTrailingZeros(bits), enabled);
+        }
+    }
+
+    /**
+     * Subscribes to the system and car topics and starts the reader thread.
+     */
+    public void start() {
+        bus.subscribe(Channels.SYSTEM, 0);
+        for (int id = 1; id <= cars; id++) {
+            bus.subscribe(Channels.car(id), 0);
+        }
+        Thread reader = new Thread(this::readLoop, "command-processor");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void readLoop() {
+        long idle = 0;
+        try {
+            while (true) {
+                int read = drainTopic(Channels.SYSTEM);
+                for (int id = 1; id <= cars; id++) {
+                    read += drainTopic(Channels.car(id));
+                }
+                if (read > 0) {
+                    scheduleHop();
+                    idle = 0;
+                } else {
+                    idle = Math.min(MAX_IDLE_MILLIS, idle + 1);
+                    Thread.sleep(idle);
+                }
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Command processor interrupted.");
+        }
+    }
+
+    private int drainTopic(int topic) throws InterruptedException {
+        int read = 0;
+        Message message;
+        while ((message = bus.get(topic, 0)) != null) {
+            int body = message.getBody();
+            int[] set = openSets[topic];
+            int size = openSetSizes[topic];
+            // Anything but the next window of the open set ends it as it is
+            if (size > 0 && Commands.opcode(body) != Commands.opcode(set[0])) {
+                add(topic, set, size);
+                size = 0;
+            }
+            if (Commands.isSet(Commands.opcode(body))) {
+                set[size++] = body;
+                if (Commands.setMore(Commands.arg(body)) && size < set.length) {
+                    openSetSizes[topic] = size;
+                } else {
+                    add(topic, set, size);
+                    openSetSizes[topic] = 0;
+                }
+            } else {
+                openSetSizes[topic] = 0;
+                add(topic, body);
+            }
+            read++;
+        }
+        return read;
+    }
+
+    // All of a set in the same batch
+    private synchronized void add(int topic, int[] bodies, int count) throws InterruptedException {
+        while (pendingCount + count > BATCH) {
+            scheduleHop();
+            wait();
+        }
+        for (int i = 0; i < count; i++) {
+            pending[pendingCount * 2] = topic;
+            pending[pendingCount * 2 + 1] = bodies[i];
+            pendingCount++;
+        }
+    }
+
+    private synchronized void add(int topic, int body) throws InterruptedException {
+        while (pendingCount == BATCH) {
+            scheduleHop();
+            wait();
+        }
+        pending[pendingCount * 2] = topic;
+        pending[pendingCount * 2 + 1] = body;
+        pendingCount++;
+    }
+
+    private synchronized void scheduleHop() {
+        if (pendingCount > 0 && !hopScheduled) {
+            hopScheduled = true;
+            Platform.runLater(applyBatch);
+        }
+    }
+
+    // FX thread: take the pending batch and run it
+    private void applyBatch() {
+        int[] batch;
+        int count;
+        synchronized (this) {
+            batch = pending;
+            pending = applying;
+            applying = batch;
+            count = pendingCount;
+            pendingCount = 0;
+            hopScheduled = false;
+            notifyAll();
+        }
+        for (int i = 0; i < count; i++) {
+            int topic = batch[i * 2];
+            int body = batch[i * 2 + 1];
+            int opcode = Commands.opcode(body);
+            Handler handler = opcode < OPCODES ? handlers[opcode] : null;
+            if (handler == null) {
+                continue;
+            }
+            // Car commands only make sense on a car topic
+            int car = topic >= 1 && topic <= cars ? topic : 0;
+            try {
+                handler.apply(car, Commands.arg(body));
+            } catch (RuntimeException e) {
+                System.err.println("Command " + opcode + " failed: " + e.getMessage());
+            }
+        }
+    }
+}
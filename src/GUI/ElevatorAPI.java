@@ -1,19 +1,195 @@
 package GUI;
 
+import dispatch.BuildingConfig;
+import dispatch.Direction;
+import dispatch.DispatchPolicy;
+import dispatch.Dispatcher;
+import dispatch.ElevatorEvent;
+import dispatch.EventHub;
+import dispatch.EventLog;
+import dispatch.FleetState;
+import dispatch.HallCalls;
+import dispatch.OperatingMode;
+import dispatch.SystemSnapshot;
+import javafx.application.Platform;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
 /**
  * The API for the whole app.
  * All other parts talk to this class.
  */
 public class ElevatorAPI {
 
+    private final BuildingConfig building;
     private boolean systemRunning = true;
-    private String systemMode = "CENTRALIZED";
+    private OperatingMode systemMode = OperatingMode.CENTRALIZED;
 
     private ElevatorPanel[] elevators;
     private CommandPanel commandPanel;
+    private Dispatcher dispatcher;
+    private final HallCalls hallCalls;
+    // Floor, door, direction etc. of every car; written by the panels on the FX thread
+    private final FleetState fleet;
+
+    // Latest published view for other threads; replaced, never modified
+    private volatile SystemSnapshot snapshot;
+    private long sequence;
+    private final AtomicBoolean publishPending = new AtomicBoolean();
+    // Per car, indexed by elevatorId: first snapshot sequence that shows its latest transition
+    private final AtomicLongArray shownFrom;
+    private final List<Runnable> snapshotListeners = new CopyOnWriteArrayList<>();
+    private final EventHub events;
+    private volatile EventLog eventLog;
+    // Panels draw their changes once per frame through this
+    private final FrameScheduler frames = new FrameScheduler();
 
     public ElevatorAPI() {
-        // Constructor
+        this(BuildingConfig.fromSystemProperties());
+    }
+
+    public ElevatorAPI(BuildingConfig building) {
+        this.building = building;
+        this.hallCalls = new HallCalls(building.getFloors());
+        this.fleet = new FleetState(building.getCars());
+        this.snapshot = new SystemSnapshot(0, systemRunning, systemMode, fleet, hallCalls);
+        this.events = new EventHub(building.getCars());
+        this.shownFrom = new AtomicLongArray(building.getCars() + 1);
+        // Call dots only change when a call switches on or off
+        hallCalls.setListener(this::showHallCall);
+    }
+
+    /**
+     * Number of cars and floors the app was started with.
+     */
+    public BuildingConfig getBuilding() {
+        return building;
+    }
+
+    public int getFloorCount() {
+        return building.getFloors();
+    }
+
+    /**
+     * State of all cars, slot = elevatorId - 1.
+     */
+    public FleetState getFleet() {
+        return fleet;
+    }
+
+    private void setMode(OperatingMode mode) {
+        boolean changed = mode != systemMode;
+        this.systemMode = mode;
+        fleet.setModeAll(mode);
+        stateChanged();
+        if (changed) {
+            transition(ElevatorEvent.Type.MODE_CHANGED, 0, mode.ordinal());
+        }
+    }
+
+    private void setRunning(boolean running) {
+        boolean changed = running != systemRunning;
+        this.systemRunning = running;
+        stateChanged();
+        if (changed) {
+            transition(ElevatorEvent.Type.RUNNING_CHANGED, 0, running ? 1 : 0);
+        }
+    }
+
+    /**
+     * Consistent view of the whole system, safe to call from any thread and
+     * never blocks. It trails the live state by at most one FX pulse.
+     */
+    public SystemSnapshot snapshot() {
+        return snapshot;
+    }
+
+    FrameScheduler frames() {
+        return frames;
+    }
+
+    /**
+     * Something in the state changed (called by the panels and by the API
+     * itself). Changes made in the same FX pulse share one new snapshot.
+     */
+    void stateChanged() {
+        if (publishPending.compareAndSet(false, true)) {
+            Platform.runLater(this::publish);
+        }
+    }
+
+    // FX thread: copy the live state into a new snapshot and swap it in
+    private void publish() {
+        publishPending.set(false);
+        snapshot = new SystemSnapshot(++sequence, systemRunning, systemMode, fleet, hallCalls);
+        for (Runnable listener : snapshotListeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Runs on the FX thread after every new snapshot; keep it short.
+     */
+    public void addSnapshotListener(Runnable listener) {
+        snapshotListeners.add(listener);
+    }
+
+    public void removeSnapshotListener(Runnable listener) {
+        snapshotListeners.remove(listener);
+    }
+
+    /**
+     * Sequence of the first snapshot that shows the car's latest event.
+     * An event can reach a listener before that snapshot is out.
+     */
+    public long shownFrom(int elevatorId) {
+        return shownFrom.get(elevatorId);
+    }
+
+    /**
+     * A car's state was just written (called by the panels right after the
+     * write, so every transition is reported, not just what differs between
+     * snapshots). The log record is stamped here, before anything else runs.
+     * FX thread.
+     */
+    void transition(ElevatorEvent.Type type, int elevatorId, int value) {
+        if (elevatorId > 0) {
+            // The write is in the next publish at the latest
+            shownFrom.set(elevatorId, sequence + 1);
+        }
+        EventLog log = eventLog;
+        if (log != null) {
+            log.append(System.currentTimeMillis(), elevatorId, type, value);
+        }
+        events.publish(type, elevatorId, value);
+    }
+
+    /**
+     * Calls the listener for every state change: floor reached, door opened
+     * or closed, direction, mode, running and car enable/disable.
+     * Called on a background thread, never the FX thread, with every change
+     * in order; only if it falls far behind are the events it has not seen
+     * yet coalesced to the latest per car and kind.
+     */
+    public void addListener(Consumer<ElevatorEvent> listener) {
+        events.addListener(listener);
+    }
+
+    public void removeListener(Consumer<ElevatorEvent> listener) {
+        events.removeListener(listener);
+    }
+
+    /**
+     * Records every state change to the binary log (null = stop).
+     * Unlike listeners the log is never coalesced; it is written on the
+     * thread making the change.
+     */
+    public void setEventLog(EventLog log) {
+        this.eventLog = log;
     }
 
     /**
@@ -28,34 +204,40 @@ public class ElevatorAPI {
      */
     public void registerElevators(ElevatorPanel[] panels) {
         this.elevators = panels;
+        // -Ddispatch.policy=eta|round-robin|fixed
+        int floors = building.getFloors();
+        this.dispatcher = new Dispatcher(panels, floors,
+                DispatchPolicy.named(System.getProperty("dispatch.policy", "eta"), floors));
     }
 
     /**
      * Start Button
      */
     public void sendStartCommand() {
-        this.systemRunning = true;
+        setRunning(true);
         if (commandPanel != null) {
             commandPanel.updateButtonStates(true);
         }
+        reevaluateDispatch();
     }
 
     /**
      * STOP Button
      */
     public void sendStopCommand() {
-        this.systemRunning = false;
+        setRunning(false);
         if (commandPanel != null) {
             commandPanel.updateButtonStates(false);
         }
+        reevaluateDispatch();
     }
 
     /**
      * Setting UI for buttons when program starts
      */
     public void setInitialUIState() {
-        this.systemRunning = true;
-        this.systemMode = "CENTRALIZED";
+        setRunning(true);
+        setMode(OperatingMode.CENTRALIZED);
 
         if (commandPanel != null) {
             commandPanel.updateForReset();
@@ -72,13 +254,14 @@ public class ElevatorAPI {
                 elevator.forceReset();
             }
         }
+        reevaluateDispatch();
     }
 
     /**
      * Test Fire Button
      */
     public void sendFireCommand() {
-        this.systemMode = "FIRE";
+        setMode(OperatingMode.FIRE);
         if (commandPanel != null) {
             commandPanel.updateForFireMode(true);
         }
@@ -88,13 +271,18 @@ public class ElevatorAPI {
                 elevator.forceMoveAndOpen(1);
             }
         }
+        // Fire recall cancels every hall call
+        hallCalls.clearAll();
+        if (dispatcher != null) {
+            dispatcher.cancelAll();
+        }
     }
 
     /**
      * Clear Fire Button
      */
     public void sendClearFireCommand() {
-        this.systemMode = "INDEPENDENT"; // Fire clear puts system in Independent
+        setMode(OperatingMode.INDEPENDENT); // Fire clear puts system in Independent
         if (commandPanel != null) {
             commandPanel.updateForFireMode(false);
         }
@@ -104,6 +292,7 @@ public class ElevatorAPI {
                 elevator.releaseAndClose();
             }
         }
+        reevaluateDispatch();
     }
 
     /**
@@ -111,17 +300,121 @@ public class ElevatorAPI {
      */
     public void toggleAutoMode() {
         // Changes between CENTRALIZED and INDEPENDENT
-        if (this.systemMode.equals("INDEPENDENT")) {
-            this.systemMode = "CENTRALIZED";
+        if (this.systemMode == OperatingMode.INDEPENDENT) {
+            setMode(OperatingMode.CENTRALIZED);
             if (commandPanel != null) {
                 commandPanel.updateForAutoMode("CENTRALIZED");
             }
-        } else if (this.systemMode.equals("CENTRALIZED")) {
-            this.systemMode = "INDEPENDENT";
+            // Calls made in INDEPENDENT mode get a car now
+            if (dispatcher != null) {
+                for (int floor = 1; floor <= building.getFloors(); floor++) {
+                    for (Direction direction : new Direction[]{Direction.UP, Direction.DOWN}) {
+                        if (hallCalls.isPending(floor, direction)) {
+                            dispatcher.hallCall(floor, direction);
+                        }
+                    }
+                }
+            }
+        } else if (this.systemMode == OperatingMode.CENTRALIZED) {
+            setMode(OperatingMode.INDEPENDENT);
             if (commandPanel != null) {
                 commandPanel.updateForAutoMode("INDEPENDENT");
             }
         }
+        reevaluateDispatch();
+    }
+
+    /**
+     * Hall call button: someone on a floor wants to go UP or DOWN.
+     * The call stays lit until a car stops there going that way. In
+     * CENTRALIZED mode the dispatcher picks the car; pressing a call that
+     * is already lit does nothing.
+     */
+    public void registerHallCall(int floor, Direction direction) {
+        if (systemMode == OperatingMode.FIRE) {
+            System.out.println("Hall call at floor " + floor + " " + direction + " ignored (FIRE).");
+            return;
+        }
+        if (!hallCalls.register(floor, direction)) {
+            return;
+        }
+        if (systemMode == OperatingMode.CENTRALIZED && dispatcher != null) {
+            dispatcher.hallCall(floor, direction);
+        }
+    }
+
+    /**
+     * Cancels the hall calls on floors first..last, both directions.
+     */
+    public void clearHallCalls(int first, int last) {
+        for (int floor = Math.max(1, first); floor <= Math.min(building.getFloors(), last); floor++) {
+            for (Direction direction : new Direction[]{Direction.UP, Direction.DOWN}) {
+                if (hallCalls.clear(floor, direction) && dispatcher != null) {
+                    dispatcher.cancel(floor, direction);
+                }
+            }
+        }
+    }
+
+    /**
+     * True while a hall call is lit.
+     */
+    public boolean isHallCallPending(int floor, Direction direction) {
+        return hallCalls.isPending(floor, direction);
+    }
+
+    /**
+     * A car opened its doors at a floor and will leave going the given way
+     * (called by ElevatorPanel). The hall call in that direction is answered;
+     * a car with nowhere to go answers both.
+     */
+    public void carArrived(int elevatorId, int floor, Direction leaving) {
+        if (leaving == Direction.IDLE) {
+            hallCallServed(elevatorId, floor, Direction.UP);
+            hallCallServed(elevatorId, floor, Direction.DOWN);
+        } else {
+            hallCallServed(elevatorId, floor, leaving);
+        }
+        reevaluateDispatch();
+    }
+
+    private void hallCallServed(int elevatorId, int floor, Direction direction) {
+        hallCalls.clear(floor, direction);
+        if (dispatcher != null) {
+            dispatcher.callServed(elevatorId - 1, floor, direction);
+        }
+    }
+
+    /**
+     * Lights or clears the call dots for a floor on every elevator.
+     */
+    private void showHallCall(int floor, Direction direction, boolean lit) {
+        stateChanged();
+        if (elevators != null) {
+            for (ElevatorPanel elevator : elevators) {
+                elevator.lightExternalCall(floor, ElevatorPanel.Direction.of(direction), lit);
+            }
+        }
+    }
+
+    /**
+     * Something changed that affects which car should take which hall call.
+     */
+    public void reevaluateDispatch() {
+        if (dispatcher != null) {
+            dispatcher.reevaluate();
+        }
+    }
+
+    /**
+     * Switches one elevator on or off (its own START/STOP button).
+     * Ignored in FIRE, where the buttons are locked too.
+     */
+    public void setElevatorEnabled(int elevatorId, boolean enabled) {
+        int index = elevatorId - 1;
+        if (systemMode != OperatingMode.FIRE && elevators != null && index >= 0 && index < elevators.length) {
+            elevators[index].setEnabledState(enabled);
+        }
     }
 
     /**
@@ -135,12 +428,17 @@ public class ElevatorAPI {
     }
 
     // Getter Methods
+    // Live values for the FX thread; other threads should use snapshot()
 
     public boolean isSystemRunning() {
         return this.systemRunning;
     }
 
     public String getSystemMode() {
+        return this.systemMode.name();
+    }
+
+    public OperatingMode getMode() {
         return this.systemMode;
     }
 
@@ -10,7 +10,15 @@ import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 import javafx.geometry.Pos;
 import javafx.geometry.Insets;
+import bus.BusBroker;
+import bus.BusConfig;
 import bus.SoftwareBus;
+import dispatch.BuildingConfig;
+import dispatch.EventLog;
+import sim.TrafficGenerator;
+import sim.TrafficProfile;
+
+import java.io.IOException;
 
 
 /**
@@ -20,7 +28,7 @@ import bus.SoftwareBus;
 public class ElevatorControlSystem extends Application {
 
     private ElevatorAPI api;
-    private ElevatorPanel[] elevators = new ElevatorPanel[4];
+    private ElevatorPanel[] elevators;
     private CommandPanel commandPanel;
 
     /**
@@ -29,8 +37,11 @@ public class ElevatorControlSystem extends Application {
     @Override
     public void start(Stage primaryStage) {
         primaryStage.setTitle("Command Center");
-        SoftwareBus busServer = new SoftwareBus(true);
-        this.api = new ElevatorAPI();
+        // The broker is already up (see main), the GUI is just another client
+        this.bus = new SoftwareBus(false, BusConfig.fromSystemProperties().setClientName("command-center"));
+        // -Dbuilding.cars / -Dbuilding.floors
+        this.api = new ElevatorAPI(BuildingConfig.fromSystemProperties());
+        this.elevators = new ElevatorPanel[api.getBuilding().getCars()];
 
         BorderPane root = new BorderPane();
         root.setStyle("-fx-background-color: #333333;");
@@ -45,7 +56,7 @@ public class ElevatorControlSystem extends Application {
         elevatorContainer.setAlignment(Pos.TOP_CENTER);
         elevatorContainer.setPadding(new Insets(10));
 
-        for (int i = 0; i < 4; i++) {
+        for (int i = 0; i < elevators.length; i++) {
             elevators[i] = new ElevatorPanel(i + 1, api);
             elevatorContainer.getChildren().add(elevators[i]);
         }
@@ -60,8 +71,15 @@ public class ElevatorControlSystem extends Application {
         api.registerElevators(elevators);
         api.registerCommandPanel(commandPanel);
 
-        // Start the background logging thread
-        startLoggingThread(api);
+        // Log state changes as they happen
+        startLogging(api);
+        startEventLog(api);
+
+        // Car state to the bus, E1..En topics
+        TelemetryPublisher.fromSystemProperties(api, bus).start();
+
+        // Remote control: Commands from the bus drive the API
+        new CommandProcessor(api, bus).start();
 
         // Start the test harness
         startTestHarness(api);
@@ -78,24 +96,30 @@ public class ElevatorControlSystem extends Application {
 
     /**
      * Test harness.
-     * Running Commands to test the API.
+     * Plays generated passenger traffic into the API, then runs the buttons.
+     * Traffic is set with system properties:
+     *   -Dtraffic.profile  up-peak, down-peak, lunch, interfloor or office-day (default office-day)
+     *   -Dtraffic.rate     passengers per minute at the busiest time (default 6)
+     *   -Dtraffic.start    hour of day the stream starts at (default 8)
+     *   -Dtraffic.speedup  play faster than real time (default 1)
+     *   -Dtraffic.seed     same seed, same passengers (default 1)
      */
     public void startTestHarness(ElevatorAPI api) {
+        TrafficGenerator traffic = new TrafficGenerator(api.getFloorCount(),
+                TrafficProfile.named(System.getProperty("traffic.profile", "office-day")),
+                Double.parseDouble(System.getProperty("traffic.rate", "6")),
+                (long) (Double.parseDouble(System.getProperty("traffic.start", "8")) * 60 * 60 * 1000),
+                Long.getLong("traffic.seed", 1));
+        double speedup = Double.parseDouble(System.getProperty("traffic.speedup", "1"));
+
         Runnable testTask = () -> {
             try {
                 // Wait for 5 seconds for the app to start
                 Thread.sleep(5000);
 
-                // Picking a specific elevator to go to specific floor
-                Platform.runLater(() -> api.sendFloorRequest(1, 10));
-                Thread.sleep(2000);
-                Platform.runLater(() -> api.sendFloorRequest(2, 4));
-                Thread.sleep(2000);
-                Platform.runLater(() -> api.sendFloorRequest(3, 6));
-                Thread.sleep(2000);
-                Platform.runLater(() -> api.sendFloorRequest(4, 9));
-
-                Thread.sleep(7000);
+                // Passengers press hall calls, the dispatcher picks the elevator
+                new TrafficDriver(api, api.getFloorCount()).start(traffic, speedup);
+                Thread.sleep(30000);
 
                 //  TESTFIRE Button Working?
                 Platform.runLater(() -> api.sendFireCommand());
@@ -124,48 +148,41 @@ public class ElevatorControlSystem extends Application {
 
 
     /**
-     * Printing Status of Elevators using API.
+     * Printing Status of Elevators using API events.
+     * Prints a line as each change happens and nothing while idle.
      */
-    public void startLoggingThread(ElevatorAPI api) {
-        Runnable loggingTask = () -> {
-            try {
-                while (true) {
-                    StringBuilder log = new StringBuilder();
-                    log.append("\nELEVATOR STATUS LOG \n");
-                    log.append(String.format("System Mode: %s | System Running: %s\n",
-                            api.getSystemMode(), api.isSystemRunning()));
-
-                    for (int i = 1; i <= 4; i++) {
-                        log.append(String.format(
-                                "  [Elev %d] Floor: %-2d | Door: %-6s | Moving: %-5s | Dir: %-4s\n",
-                                i,
-                                api.getElevatorFloor(i),
-                                api.isElevatorDoorOpen(i) ? "OPEN" : "CLOSED",
-                                api.isElevatorMoving(i) ? "Yes" : "No",
-                                api.getElevatorDirection(i)
-                        ));
-                    }
-
-                    System.out.println(log.toString());
-                    Thread.sleep(5000); // Log every 5 seconds
-                }
-            } catch (InterruptedException e) {
-                System.out.println("Logging thread interrupted.");
-            }
-        };
+    public void startLogging(ElevatorAPI api) {
+        api.addListener(event -> System.out.println("[EVENT] " + event));
+    }
+
 
-        Thread loggingThread = new Thread(loggingTask);
-        loggingThread.setDaemon(true);
-        loggingThread.start();
+    /**
+     * Binary record of every transition for sim.EventLogAnalyzer
+     * (see EventLog.fromSystemProperties for where it goes).
+     */
+    private void startEventLog(ElevatorAPI api) {
+        try {
+            EventLog log = EventLog.fromSystemProperties();
+            api.setEventLog(log);
+            Runtime.getRuntime().addShutdownHook(new Thread(log::close, "event-log-close"));
+            System.out.println("Event log: " + log.getDir());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Event log disabled: " + e.getMessage());
+        }
     }
 
 
     /**
      * Launching the application.
+     * Starts an in-process bus broker first unless one is already running
+     * (e.g. a standalone bus.BusBroker) or -Dbus.external=true is set.
      */
     public static void main(String[] args) {
+        if (!Boolean.getBoolean("bus.external")) {
+            BusBroker.startIfAbsent(BusConfig.fromSystemProperties());
+        }
         launch(args);
     }
 
-    private SoftwareBus busServer;
+    private SoftwareBus bus;
 }
\ No newline at end of file
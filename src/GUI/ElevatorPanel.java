@@ -16,23 +16,46 @@ import javafx.util.Duration;
 import javafx.geometry.Pos;
 import javafx.geometry.Insets;
 
-import java.util.concurrent.ConcurrentHashMap;
+import dispatch.CarView;
+import dispatch.ElevatorEvent;
+import dispatch.FleetState;
+import dispatch.OperatingMode;
+import dispatch.StopQueue;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Manages all the visuals and logic for a single elevator.
+ *
+ * State changes never touch the scene graph directly: they set a dirty flag,
+ * and the panel redraws whatever is flagged once per frame (FrameScheduler),
+ * reading the current values from its fleet slot. A burst of changes costs
+ * one redraw, not one Platform.runLater each.
  */
-public class ElevatorPanel extends VBox {
+public class ElevatorPanel extends VBox implements CarView {
 
-    public enum Direction { UP, DOWN, IDLE }
+    public enum Direction {
+        UP, DOWN, IDLE;
+
+        /**
+         * Same direction as used by the dispatcher.
+         */
+        public static Direction of(dispatch.Direction direction) {
+            return valueOf(direction.name());
+        }
+    }
 
     private final int elevatorId;
-    private int currentFloor;
-    private Direction currentDirection = Direction.IDLE;
-    private boolean isMoving = false;
+    // This car's slot in the API's FleetState holds floor, target, door, moving, direction and enabled
+    private final FleetState fleet;
+    private final int car;
     private final ElevatorAPI api;
 
-    private boolean isDoorOpen = false;
-    private boolean isEnabled = true;
+
+    // Car calls and dispatched hall calls, served in LOOK order
+    private final StopQueue stops = new StopQueue();
+    // Between DEPARTED and ARRIVED: left a stop and not stopped again yet
+    private boolean underway;
     private Button mainControlButton;
     private String btnText_START = "START";
     private String btnColor_START = "-fx-background-color: #228B22;";
@@ -50,7 +73,9 @@ public class ElevatorPanel extends VBox {
     private PauseTransition waitAfterClose;
     private PauseTransition checkAgainPause;
 
-    private final ConcurrentHashMap<Integer, DualDotIndicatorPanel> floorCallIndicators = new ConcurrentHashMap<>();
+    private final int floors;
+    // Call dots, indexed by floor
+    private final DualDotIndicatorPanel[] floorCallIndicators;
     private final DirectionIndicatorPanel directionIndicator;
     private final Label currentFloorDisplay;
 
@@ -59,12 +84,29 @@ public class ElevatorPanel extends VBox {
     private static final double TOTAL_FLOOR_HEIGHT = FLOOR_HEIGHT + FLOOR_SPACING;
     private static final double ANIMATION_SPEED_PER_FLOOR = 400.0;
 
+    // What the next frame has to redraw
+    private static final int DIRTY_FLOOR = 1;
+    private static final int DIRTY_DOOR = 1 << 1;
+    private static final int DIRTY_DIRECTION = 1 << 2;
+    private static final int DIRTY_BUTTON = 1 << 3;
+    private static final int DIRTY_CALLS = 1 << 4;
+    private static final int DIRTY_POSITION = 1 << 5;
+    private final AtomicInteger dirty = new AtomicInteger();
+    private final Runnable render = this::render;
+
+    // Car move for the next frame (DIRTY_POSITION)
+    private int positionFloor;
+    private int positionFloors;
+    private boolean positionAnimate;
+
     /**
      * The call buttons (dots) for each floor.
      */
     private class DualDotIndicatorPanel extends VBox {
         private Circle upDot = new Circle(3, Color.web("#505050"));
         private Circle downDot = new Circle(3, Color.web("#505050"));
+        private volatile boolean upLit;
+        private volatile boolean downLit;
 
         /**
          * Creates the two dots.
@@ -77,14 +119,20 @@ public class ElevatorPanel extends VBox {
         }
 
         /**
-         * Lights up the dot (or turns it off).
+         * Lights up the dot (or turns it off) in the next frame.
          */
         public void setDotLit(Direction direction, boolean lit) {
-            Color color = lit ? Color.WHITE : Color.web("#505050");
-            Platform.runLater(() -> {
-                if (direction == Direction.UP) upDot.setFill(color);
-                else if (direction == Direction.DOWN) downDot.setFill(color);
-            });
+            if (direction == Direction.UP) upLit = lit;
+            else if (direction == Direction.DOWN) downLit = lit;
+            markDirty(DIRTY_CALLS);
+        }
+
+        /**
+         * Draws the dots. FX thread.
+         */
+        void show() {
+            upDot.setFill(upLit ? Color.WHITE : Color.web("#505050"));
+            downDot.setFill(downLit ? Color.WHITE : Color.web("#505050"));
         }
     }
 
@@ -102,20 +150,18 @@ public class ElevatorPanel extends VBox {
             super(6);
             upTriangle = new Polygon(6.0, 0.0, 0.0, 8.0, 12.0, 8.0);
             downTriangle = new Polygon(6.0, 8.0, 0.0, 0.0, 12.0, 0.0);
-            setDirection(Direction.IDLE);
+            show(Direction.IDLE);
             getChildren().addAll(upTriangle, downTriangle);
             setAlignment(Pos.CENTER);
             setPadding(new Insets(5));
         }
 
         /**
-         * Lights up the correct arrow.
+         * Lights up the correct arrow. FX thread.
          */
-        public void setDirection(Direction newDirection) {
-            Platform.runLater(() -> {
-                upTriangle.setFill(newDirection == Direction.UP ? Color.WHITE : UNLIT_COLOR);
-                downTriangle.setFill(newDirection == Direction.DOWN ? Color.WHITE : UNLIT_COLOR);
-            });
+        void show(Direction newDirection) {
+            upTriangle.setFill(newDirection == Direction.UP ? Color.WHITE : UNLIT_COLOR);
+            downTriangle.setFill(newDirection == Direction.DOWN ? Color.WHITE : UNLIT_COLOR);
         }
     }
 
@@ -126,12 +172,16 @@ public class ElevatorPanel extends VBox {
         super(3);
         this.elevatorId = id;
         this.api = api;
+        this.floors = api.getFloorCount();
+        this.floorCallIndicators = new DualDotIndicatorPanel[floors + 1];
+        this.fleet = api.getFleet();
+        this.car = id - 1;
         setAlignment(Pos.CENTER);
         setStyle("-fx-background-color: #333333;");
         setPrefWidth(100);
 
-        this.currentFloor = 1;
-        isEnabled = true;
+        setFloor(1);
+        setEnabled(true);
         String btnText = btnText_STOP;
         String btnColor = btnColor_STOP;
 
@@ -143,7 +193,7 @@ public class ElevatorPanel extends VBox {
         mainControlButton.setPrefWidth(90);
 
         mainControlButton.setOnAction(e -> {
-            if (api.getSystemMode().equals("INDEPENDENT") || api.getSystemMode().equals("CENTRALIZED")) {
+            if (api.getMode() != OperatingMode.FIRE) {
                 toggleEnabledState();
             }
         });
@@ -151,7 +201,7 @@ public class ElevatorPanel extends VBox {
         statusRow.setAlignment(Pos.CENTER_RIGHT);
         statusRow.setPrefWidth(90);
 
-        currentFloorDisplay = new Label(String.valueOf(this.currentFloor));
+        currentFloorDisplay = new Label(String.valueOf(getCurrentFloor()));
         currentFloorDisplay.setStyle("-fx-background-color: white; -fx-text-fill: black; -fx-font-size: 18px; -fx-font-weight: bold; -fx-alignment: center;");
         currentFloorDisplay.setPrefSize(30, 30);
 
@@ -164,11 +214,11 @@ public class ElevatorPanel extends VBox {
         carPane = new Pane();
         carPane.setMouseTransparent(true);
 
-        for (int i = 10; i >= 1; i--) {
+        for (int i = floors; i >= 1; i--) {
             floorButtonColumn.getChildren().add(createFloorRow(i));
         }
 
-        carFloorLabel = new Label(String.valueOf(this.currentFloor));
+        carFloorLabel = new Label(String.valueOf(getCurrentFloor()));
         carFloorLabel.setStyle("-fx-font-size: 14px; -fx-text-fill: white; -fx-font-weight: bold;");
 
         movingCar = new VBox(carFloorLabel);
@@ -188,7 +238,7 @@ public class ElevatorPanel extends VBox {
 
         elevatorAnimation = new TranslateTransition();
         elevatorAnimation.setNode(movingCar);
-        updateElevatorPosition(this.currentFloor, false);
+        updateElevatorPosition(getCurrentFloor(), false);
     }
 
     /**
@@ -200,7 +250,7 @@ public class ElevatorPanel extends VBox {
         row.setPrefSize(90, FLOOR_HEIGHT);
 
         DualDotIndicatorPanel callIndicator = new DualDotIndicatorPanel(floor, this);
-        floorCallIndicators.put(floor, callIndicator);
+        floorCallIndicators[floor] = callIndicator;
 
         Label floorLabel = new Label(String.valueOf(floor));
         floorLabel.setStyle("-fx-background-color: #404040; -fx-text-fill: white; -fx-background-radius: 0;");
@@ -215,16 +265,17 @@ public class ElevatorPanel extends VBox {
      * Flips the local START/STOP button.
      */
     private void toggleEnabledState() {
-        isEnabled = !isEnabled;
-        Platform.runLater(() -> {
-            if (isEnabled) {
-                mainControlButton.setText(btnText_STOP);
-                mainControlButton.setStyle(btnColor_STOP + " -fx-text-fill: white; -fx-font-weight: bold; -fx-background-radius: 0;");
-            } else {
-                mainControlButton.setText(btnText_START);
-                mainControlButton.setStyle(btnColor_START + " -fx-text-fill: white; -fx-font-weight: bold; -fx-background-radius: 0;");
-            }
-        });
+        setEnabledState(!fleet.isEnabled(car));
+    }
+
+    /**
+     * Switches the car on or off, like its START/STOP button
+     * (START_ELEVATOR / STOP_ELEVATOR commands).
+     */
+    public void setEnabledState(boolean isEnabled) {
+        setEnabled(isEnabled);
+        // Hall calls move off a car that was switched off
+        api.reevaluateDispatch();
     }
 
     /**
@@ -232,81 +283,67 @@ public class ElevatorPanel extends VBox {
      */
     public void onSystemModeChange(String newMode) {
         if (newMode.equals("CENTRALIZED")) {
-            isEnabled = true;
-            Platform.runLater(() -> {
-                mainControlButton.setText(btnText_STOP);
-                mainControlButton.setStyle(btnColor_STOP + " -fx-text-fill: white; -fx-font-weight: bold; -fx-background-radius: 0;");
-            });
+            setEnabled(true);
         }
     }
 
     /**
-     * Moves the elevator car visuals.
+     * Moves the elevator car visuals (in the next frame).
      */
     private void updateElevatorPosition(int newFloor, boolean animate) {
-        double targetY = (10 - newFloor) * TOTAL_FLOOR_HEIGHT;
-        int floorsToTravel = Math.abs(newFloor - this.currentFloor);
-        this.currentFloor = newFloor;
-
-
-        Platform.runLater(() -> {
-            this.currentFloorDisplay.setText(String.valueOf(newFloor));
-            this.carFloorLabel.setText(String.valueOf(newFloor));
-
-            if (animate) {
-                elevatorAnimation.setDuration(Duration.millis(floorsToTravel * ANIMATION_SPEED_PER_FLOOR));
-                elevatorAnimation.setToY(targetY);
-                elevatorAnimation.play();
-            } else {
-                movingCar.setTranslateY(targetY);
-            }
-        });
+        positionFloors = Math.abs(newFloor - getCurrentFloor());
+        positionFloor = newFloor;
+        positionAnimate = animate;
+        setFloor(newFloor);
+        markDirty(DIRTY_POSITION);
     }
 
     /**
      * Changes the car border (white=open, black=closed).
      */
     public void setDoorStatus(boolean open) {
-        this.isDoorOpen = open;
-        String borderColor = open ? "white" : "black";
-        String style = "-fx-background-color: #606060;" +
-                "-fx-border-color: " + borderColor + ";" +
-                "-fx-border-width: 0 2 0 2;";
-
-        Platform.runLater(() -> {
-            movingCar.setStyle(style);
-        });
+        boolean changed = open != isDoorOpen();
+        fleet.setDoorOpen(car, open);
+        api.stateChanged();
+        if (changed) {
+            api.transition(open ? ElevatorEvent.Type.DOOR_OPENED : ElevatorEvent.Type.DOOR_CLOSED, elevatorId, 0);
+        }
+        markDirty(DIRTY_DOOR);
     }
 
     /**
      * Changes the direction arrows.
      */
     public void setDirection(Direction newDirection) {
-        this.currentDirection = newDirection;
-        directionIndicator.setDirection(newDirection);
+        dispatch.Direction direction = dispatch.Direction.valueOf(newDirection.name());
+        boolean changed = direction != fleet.getDirection(car);
+        fleet.setDirection(car, direction);
+        api.stateChanged();
+        if (changed) {
+            api.transition(ElevatorEvent.Type.DIRECTION_CHANGED, elevatorId, direction.code());
+        }
+        markDirty(DIRTY_DIRECTION);
     }
 
     /**
      * Lights up the call dots.
      */
     public void lightExternalCall(int floor, Direction direction, boolean lit) {
-        DualDotIndicatorPanel indicator = floorCallIndicators.get(floor);
-        if (indicator != null) {
-            indicator.setDotLit(direction, lit);
+        if (floor >= 1 && floor <= floors) {
+            floorCallIndicators[floor].setDotLit(direction, lit);
         }
     }
 
     /**
-     * Stops all animations and pauses.
+     * Stops all animations and pauses, including a move not drawn yet.
+     * Runs on the FX thread.
      */
     private void stopAllTimers() {
-
-        Platform.runLater(() -> {
-            elevatorAnimation.stop();
-            if (waitAtFloor != null) waitAtFloor.stop();
-            if (waitAfterClose != null) waitAfterClose.stop();
-            if (checkAgainPause != null) checkAgainPause.stop();
-        });
+        dirty.updateAndGet(d -> d & ~DIRTY_POSITION);
+        elevatorAnimation.stop();
+        if (waitAtFloor != null) waitAtFloor.stop();
+        if (waitAfterClose != null) waitAfterClose.stop();
+        if (checkAgainPause != null) checkAgainPause.stop();
     }
 
     /**
@@ -316,17 +353,21 @@ public class ElevatorPanel extends VBox {
 
         Platform.runLater(() -> {
             stopAllTimers();
-            isMoving = true;
+            stops.clear();
+            setMoving(true);
             setDirection(Direction.IDLE);
             setDoorStatus(false);
 
-            if (targetFloor == currentFloor) {
+            if (targetFloor == getCurrentFloor()) {
+                arrived();
                 setDoorStatus(true);
-                isMoving = true;
+                setMoving(true);
             } else {
+                departed();
                 elevatorAnimation.setOnFinished(e -> {
+                    arrived();
                     setDoorStatus(true);
-                    isMoving = true;
+                    setMoving(true);
                 });
                 updateElevatorPosition(targetFloor, true);
             }
@@ -341,7 +382,8 @@ public class ElevatorPanel extends VBox {
         Platform.runLater(() -> {
             stopAllTimers();
             setDoorStatus(false);
-            isMoving = false;
+            setMoving(false);
+            serveNextStop();
         });
     }
 
@@ -352,25 +394,28 @@ public class ElevatorPanel extends VBox {
 
         Platform.runLater(() -> {
             stopAllTimers();
+            // Hall calls stay; the car picks them up once the reset is done
+            stops.clearCarCalls();
 
-            isMoving = true;
-            isEnabled = true;
-            mainControlButton.setText(btnText_STOP);
-            mainControlButton.setStyle(btnColor_STOP + " -fx-text-fill: white; -fx-font-weight: bold; -fx-background-radius: 0;");
+            setMoving(true);
+            setEnabled(true);
 
             setDirection(Direction.IDLE);
             setDoorStatus(false);
 
             PauseTransition waitAfterReset = new PauseTransition(Duration.millis(5000));
             waitAfterReset.setOnFinished(e -> {
-                isMoving = false;
+                setMoving(false);
+                serveNextStop();
             });
 
             elevatorAnimation.setOnFinished(e -> {
+                arrived();
                 setDoorStatus(false);
                 waitAfterReset.play();
             });
 
+            departed();
             updateElevatorPosition(1, true);
         });
     }
@@ -378,80 +423,268 @@ public class ElevatorPanel extends VBox {
 
     /**
      * Sending Elevator to specific floor.
+     * The floor joins the car's stops; a trip in progress carries on and
+     * picks it up in LOOK order.
      */
     public void requestFloor(int targetFloor) {
 
-        if (!api.isSystemRunning() || api.getSystemMode().equals("FIRE") || !isEnabled) {
+        if (!api.isSystemRunning() || api.getMode() == OperatingMode.FIRE || !isEnabled()) {
             System.out.println("ELEV " + elevatorId + ": Request to "
                     + targetFloor + " denied (system offline or FIRE).");
             return;
         }
-        if (targetFloor == currentFloor) {
+        if (targetFloor < 1 || targetFloor > floors) {
+            System.out.println("ELEV " + elevatorId + ": No floor " + targetFloor + ".");
+            return;
+        }
+        if (targetFloor == getCurrentFloor() && (!isMoving() || isDoorOpen())) {
             System.out.println("ELEV " + elevatorId + ": Already at floor " + targetFloor);
             return;
         }
-        Platform.runLater(() -> {
-            stopAllTimers();
-            System.out.println("ELEV " + elevatorId + ": Servicing new request to floor " + targetFloor);
+        if (stops.addCarCall(targetFloor)) {
+            System.out.println("ELEV " + elevatorId + ": Added stop at floor " + targetFloor);
+        }
+        Platform.runLater(this::serveNextStop);
+    }
 
-            isMoving = true;
+    /**
+     * Starts working through the stops if the car is idle. Runs on the FX thread.
+     */
+    private void serveNextStop() {
+        if (isMoving() || stops.isEmpty()) {
+            return;
+        }
+        setMoving(true);
+        step();
+    }
+
+    /**
+     * One step of the sweep: heads one floor towards the next LOOK stop, or
+     * stops here, or goes idle when nothing is left. Runs on the FX thread.
+     */
+    private void step() {
+        int currentFloor = getCurrentFloor();
+        int next = stops.next(currentFloor, getTravelDirection());
+        setTarget(Math.max(FleetState.NONE, next));
+        if (next < 0) {
+            arrived();
+            setMoving(false);
+            setDirection(Direction.IDLE);
+            System.out.println("ELEV " + elevatorId + ": Request finished. Now idle.");
+            return;
+        }
+        if (next == currentFloor) {
+            arrive();
+            return;
+        }
+        Direction direction = next > currentFloor ? Direction.UP : Direction.DOWN;
+        if (direction != getCurrentDirection()) {
+            setDirection(direction);
+        }
+        int nextFloor = currentFloor + (direction == Direction.UP ? 1 : -1);
+        departed();
+        elevatorAnimation.setOnFinished(e -> {
+            setFloor(nextFloor);
+            step();
+        });
+        elevatorAnimation.setDuration(Duration.millis(ANIMATION_SPEED_PER_FLOOR));
+        elevatorAnimation.setToY((floors - nextFloor) * TOTAL_FLOOR_HEIGHT);
+        elevatorAnimation.play();
+    }
+
+    /**
+     * Serves the stop at the current floor: shows the direction the car
+     * leaves in (which hall call it answers), opens the doors, waits, closes
+     * them and moves on. Runs on the FX thread.
+     */
+    private void arrive() {
+        int currentFloor = getCurrentFloor();
+        dispatch.Direction leaving = stops.serve(currentFloor, getTravelDirection());
+        arrived();
+        setDirection(Direction.of(leaving));
+        setDoorStatus(true);
+        api.carArrived(elevatorId, currentFloor, leaving);
+
+        waitAtFloor = new PauseTransition(Duration.millis(2000));
+        waitAfterClose = new PauseTransition(Duration.millis(2000));
+        waitAfterClose.setOnFinished(e -> step());
+        waitAtFloor.setOnFinished(e -> {
             setDoorStatus(false);
-            setDirection(targetFloor > currentFloor ? Direction.UP : Direction.DOWN);
+            waitAfterClose.play();
+        });
+        waitAtFloor.play();
+    }
 
+    @Override
+    public void addStop(int floor, dispatch.Direction direction) {
+        stops.addHallCall(floor, direction);
+        Platform.runLater(this::serveNextStop);
+    }
 
-            waitAtFloor = new PauseTransition(Duration.millis(2000));
-            waitAfterClose = new PauseTransition(Duration.millis(2000));
+    @Override
+    public void removeStop(int floor, dispatch.Direction direction) {
+        stops.removeHallCall(floor, direction);
+    }
 
+    @Override
+    public int getStops(int[] into) {
+        return stops.toArray(into);
+    }
 
-            waitAfterClose.setOnFinished(e -> {
-                isMoving = false;
-                System.out.println("ELEV " + elevatorId + ": Request finished. Now idle.");
-            });
-            waitAtFloor.setOnFinished(e -> {
-                setDoorStatus(false);
-                waitAfterClose.play();
-            });
-            elevatorAnimation.setOnFinished(e -> {
-                setDirection(Direction.IDLE);
-                setDoorStatus(true);
-                waitAtFloor.play();
-            });
-            updateElevatorPosition(targetFloor, true);
-        });
+    @Override
+    public dispatch.Direction getTravelDirection() {
+        return fleet.getDirection(car);
+    }
+
+    /**
+     * Can take hall calls: enabled, system running and not in FIRE.
+     */
+    @Override
+    public boolean isAvailable() {
+        return isEnabled() && api.isSystemRunning() && api.getMode() != OperatingMode.FIRE;
+    }
+
+    // Writes to this car's fleet slot; each one lets the API publish a new
+    // snapshot and flags what the next frame redraws
+
+    private void setFloor(int floor) {
+        boolean changed = floor != getCurrentFloor();
+        fleet.setFloor(car, floor);
+        api.stateChanged();
+        if (changed) {
+            api.transition(ElevatorEvent.Type.FLOOR_REACHED, elevatorId, floor);
+        }
+        markDirty(DIRTY_FLOOR);
+    }
+
+    private void setTarget(int floor) {
+        fleet.setTarget(car, floor);
+        api.stateChanged();
+    }
+
+    /**
+     * Start of a trip: the car leaves the floor it stopped at. Further
+     * floors on the way do not start a new one.
+     */
+    private void departed() {
+        if (!underway) {
+            underway = true;
+            api.transition(ElevatorEvent.Type.DEPARTED, elevatorId, getCurrentFloor());
+        }
+    }
+
+    /**
+     * End of a trip: the car stopped at a floor (doors open next, or it idles).
+     */
+    private void arrived() {
+        if (underway) {
+            underway = false;
+            api.transition(ElevatorEvent.Type.ARRIVED, elevatorId, getCurrentFloor());
+        }
+    }
+
+    private void setMoving(boolean moving) {
+        fleet.setMoving(car, moving);
+        api.stateChanged();
+    }
+
+    private void setEnabled(boolean enabled) {
+        boolean changed = enabled != isEnabled();
+        fleet.setEnabled(car, enabled);
+        api.stateChanged();
+        if (changed) {
+            api.transition(enabled ? ElevatorEvent.Type.ENABLED : ElevatorEvent.Type.DISABLED, elevatorId, 0);
+        }
+        markDirty(DIRTY_BUTTON);
+    }
+
+    /**
+     * Flags part of the panel for the next frame; only the first flag since
+     * the last frame asks the scheduler for a render. Any thread.
+     */
+    private void markDirty(int flags) {
+        if (dirty.getAndUpdate(d -> d | flags) == 0) {
+            api.frames().request(render);
+        }
+    }
+
+    /**
+     * Draws everything flagged since the last frame from the current state.
+     * FX thread, at most once per frame.
+     */
+    private void render() {
+        int flags = dirty.getAndSet(0);
+        if ((flags & DIRTY_FLOOR) != 0) {
+            String floor = String.valueOf(getCurrentFloor());
+            currentFloorDisplay.setText(floor);
+            carFloorLabel.setText(floor);
+        }
+        if ((flags & DIRTY_DOOR) != 0) {
+            movingCar.setStyle("-fx-background-color: #606060;" +
+                    "-fx-border-color: " + (isDoorOpen() ? "white" : "black") + ";" +
+                    "-fx-border-width: 0 2 0 2;");
+        }
+        if ((flags & DIRTY_DIRECTION) != 0) {
+            directionIndicator.show(getCurrentDirection());
+        }
+        if ((flags & DIRTY_BUTTON) != 0) {
+            if (isEnabled()) {
+                mainControlButton.setText(btnText_STOP);
+                mainControlButton.setStyle(btnColor_STOP + " -fx-text-fill: white; -fx-font-weight: bold; -fx-background-radius: 0;");
+            } else {
+                mainControlButton.setText(btnText_START);
+                mainControlButton.setStyle(btnColor_START + " -fx-text-fill: white; -fx-font-weight: bold; -fx-background-radius: 0;");
+            }
+        }
+        if ((flags & DIRTY_CALLS) != 0) {
+            for (int floor = 1; floor <= floors; floor++) {
+                floorCallIndicators[floor].show();
+            }
+        }
+        if ((flags & DIRTY_POSITION) != 0) {
+            double targetY = (floors - positionFloor) * TOTAL_FLOOR_HEIGHT;
+            if (positionAnimate) {
+                elevatorAnimation.setDuration(Duration.millis(positionFloors * ANIMATION_SPEED_PER_FLOOR));
+                elevatorAnimation.setToY(targetY);
+                elevatorAnimation.play();
+            } else {
+                movingCar.setTranslateY(targetY);
+            }
+        }
     }
 
     /**
      * Elevator Current Floor status
      */
     public int getCurrentFloor() {
-        return this.currentFloor;
+        return fleet.getFloor(car);
     }
 
     /**
      * Elevator Moving Status
      */
     public boolean isMoving() {
-        return this.isMoving;
+        return fleet.isMoving(car);
     }
 
     /**
      * Door Open Status
      */
     public boolean isDoorOpen() {
-        return this.isDoorOpen;
+        return fleet.isDoorOpen(car);
     }
 
     /**
      * Tells current direction of elevator
      */
     public ElevatorPanel.Direction getCurrentDirection() {
-        return this.currentDirection;
+        return Direction.of(fleet.getDirection(car));
     }
 
     /**
      * Elevator On/OFf Status
      */
     public boolean isEnabled() {
-        return this.isEnabled;
+        return fleet.isEnabled(car);
     }
 }
\ No newline at end of file
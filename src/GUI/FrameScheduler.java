@@ -0,0 +1,69 @@
+package GUI;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs pending scene graph updates once per frame.
+ * Panels keep their own dirty flags and ask for one render when the first
+ * flag goes up; every render asked for is run in the next AnimationTimer
+ * pulse, however many changes came in since the last frame. So the UI work
+ * grows with the frame rate, not with the rate of state changes.
+ *
+ * The timer only runs while there is something to draw.
+ */
+final class FrameScheduler {
+
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            frame();
+        }
+    };
+
+    /**
+     * Runs the render in the next frame. Callers make sure a render is not
+     * asked for again before it has run (see ElevatorPanel.markDirty).
+     * Any thread.
+     */
+    void request(Runnable render) {
+        pending.add(render);
+        if (running.compareAndSet(false, true)) {
+            if (Platform.isFxApplicationThread()) {
+                timer.start();
+            } else {
+                Platform.runLater(timer::start);
+            }
+        }
+    }
+
+    // FX thread, once per pulse
+    private void frame() {
+        // Only what was pending when the frame started; anything a render asks for waits a frame
+        for (int n = pending.size(); n > 0; n--) {
+            Runnable render = pending.poll();
+            if (render == null) {
+                break;
+            }
+            try {
+                render.run();
+            } catch (RuntimeException e) {
+                System.err.println("UI update failed: " + e);
+            }
+        }
+        if (pending.isEmpty()) {
+            timer.stop();
+            running.set(false);
+            // Something came in between the check and the stop
+            if (!pending.isEmpty() && running.compareAndSet(false, true)) {
+                timer.start();
+            }
+        }
+    }
+}
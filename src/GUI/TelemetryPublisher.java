@@ -0,0 +1,167 @@
+package GUI;
+
+import Message.Channels;
+import Message.Commands;
+import Message.Message;
+import bus.SoftwareBus;
+import dispatch.ElevatorEvent;
+import dispatch.SystemSnapshot;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Publishes each car's state to the bus as STATUS messages on its own
+ * topic (Channels.car(id), subtopic 0).
+ * A car is only sent when its STATUS arg changed, and at most once per
+ * minimum interval (changes in between are folded into the next send).
+ * Every keyframe interval all cars are sent regardless, so a processor
+ * that joins late or lost a message catches up.
+ *
+ * Driven by ElevatorAPI events; sends nothing while nothing moves except
+ * the keyframes. An event can arrive before the snapshot showing it is
+ * published, so a car stays dirty until a snapshot that shows its latest
+ * event has been read (see ElevatorAPI.shownFrom).
+ */
+public class TelemetryPublisher {
+
+    private final ElevatorAPI api;
+    private final SoftwareBus bus;
+    private final long minIntervalMillis;
+    private final long keyframeMillis;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "telemetry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Per car, indexed by elevatorId; only touched on the timer thread
+    private final int[] lastSent;
+    private final long[] lastSentAt;
+    private final boolean[] dirty;
+    private boolean flushScheduled;
+    // A dirty car is waiting for a newer snapshot than the last one read
+    private volatile boolean awaitingSnapshot;
+    private final Consumer<ElevatorEvent> listener = this::onEvent;
+    private final Runnable snapshotListener = this::onSnapshot;
+
+    /**
+     * @param minIntervalMillis least time between two STATUS messages for one car
+     * @param keyframeMillis    how often every car is sent anyway (0 = never)
+     */
+    public TelemetryPublisher(ElevatorAPI api, SoftwareBus bus, long minIntervalMillis, long keyframeMillis) {
+        this.api = api;
+        this.bus = bus;
+        this.minIntervalMillis = minIntervalMillis;
+        this.keyframeMillis = keyframeMillis;
+        int cars = api.getBuilding().getCars();
+        this.lastSent = new int[cars + 1];
+        this.lastSentAt = new long[cars + 1];
+        this.dirty = new boolean[cars + 1];
+        Arrays.fill(lastSent, -1);
+    }
+
+    /**
+     * Reads -Dtelemetry.minIntervalMillis (default 100) and
+     * -Dtelemetry.keyframeMillis (default 5000).
+     */
+    public static TelemetryPublisher fromSystemProperties(ElevatorAPI api, SoftwareBus bus) {
+        return new TelemetryPublisher(api, bus,
+                Long.getLong("telemetry.minIntervalMillis", 100),
+                Long.getLong("telemetry.keyframeMillis", 5000));
+    }
+
+    public void start() {
+        api.addListener(listener);
+        api.addSnapshotListener(snapshotListener);
+        if (keyframeMillis > 0) {
+            timer.scheduleAtFixedRate(this::keyframe, 0, keyframeMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void stop() {
+        api.removeListener(listener);
+        api.removeSnapshotListener(snapshotListener);
+        timer.shutdownNow();
+    }
+
+    private void onEvent(ElevatorEvent event) {
+        if (event.elevatorId() > 0) {
+            timer.execute(() -> markDirty(event.elevatorId()));
+        }
+    }
+
+    // FX thread
+    private void onSnapshot() {
+        if (awaitingSnapshot) {
+            awaitingSnapshot = false;
+            timer.execute(this::flush);
+        }
+    }
+
+    private void markDirty(int id) {
+        dirty[id] = true;
+        flush();
+    }
+
+    // Sends every dirty car that is out of its minimum interval and
+    // schedules another pass for the ones that are not
+    private void flush() {
+        SystemSnapshot state = api.snapshot();
+        long now = System.currentTimeMillis();
+        long nextDue = Long.MAX_VALUE;
+        boolean stale = false;
+        for (int id = 1; id < dirty.length; id++) {
+            if (!dirty[id]) {
+                continue;
+            }
+            long due = lastSentAt[id] + minIntervalMillis;
+            if (due > now) {
+                nextDue = Math.min(nextDue, due);
+                continue;
+            }
+            if (state.getSequence() < api.shownFrom(id)) {
+                stale = true;
+                continue;
+            }
+            dirty[id] = false;
+            int arg = state.statusArg(id);
+            if (arg != lastSent[id]) {
+                send(id, arg, now);
+            }
+        }
+        if (stale) {
+            awaitingSnapshot = true;
+            // Published between reading it and raising the flag
+            if (api.snapshot() != state) {
+                awaitingSnapshot = false;
+                timer.execute(this::flush);
+            }
+        }
+        if (nextDue != Long.MAX_VALUE && !flushScheduled) {
+            flushScheduled = true;
+            timer.schedule(() -> {
+                flushScheduled = false;
+                flush();
+            }, nextDue - now, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void keyframe() {
+        SystemSnapshot state = api.snapshot();
+        long now = System.currentTimeMillis();
+        for (int id = 1; id < dirty.length; id++) {
+            dirty[id] = false;
+            send(id, state.statusArg(id), now);
+        }
+    }
+
+    private void send(int id, int arg, long now) {
+        lastSent[id] = arg;
+        lastSentAt[id] = now;
+        bus.publish(new Message(Channels.car(id), 0, Commands.encode(Commands.STATUS, arg)));
+    }
+}
@@ -0,0 +1,106 @@
+package GUI;
+
+import dispatch.Direction;
+import javafx.application.Platform;
+import sim.Arrival;
+import sim.TrafficGenerator;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Plays a generated passenger stream into the running command center.
+ * Each arrival presses the hall call for its direction. Every 100 ms the
+ * driver looks for cars standing with doors open: passengers waiting on that
+ * floor whose call has been answered get in and press their floor in that car.
+ * All bookkeeping happens on the JavaFX thread.
+ */
+public class TrafficDriver {
+
+    private static final long BOARD_CHECK_MILLIS = 100;
+
+    private final ElevatorAPI api;
+    // Destinations of passengers waiting per floor: [floor][0] going up, [floor][1] going down
+    private final ArrayDeque<Integer>[][] waiting;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TrafficDriver(ElevatorAPI api, int floors) {
+        this.api = api;
+        this.waiting = new ArrayDeque[floors + 1][2];
+        for (ArrayDeque<Integer>[] floor : waiting) {
+            floor[0] = new ArrayDeque<>();
+            floor[1] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Starts playing the stream on a daemon thread, speeded up by the given factor.
+     */
+    public void start(Iterator<Arrival> arrivals, double speedup) {
+        Thread traffic = new Thread(() -> {
+            try {
+                TrafficGenerator.play(arrivals, speedup, a -> Platform.runLater(() -> arrive(a)));
+            } catch (InterruptedException e) {
+                System.out.println("Traffic interrupted.");
+            }
+        }, "traffic");
+        traffic.setDaemon(true);
+        traffic.start();
+
+        Thread boarding = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(BOARD_CHECK_MILLIS);
+                    Platform.runLater(this::board);
+                }
+            } catch (InterruptedException e) {
+                System.out.println("Boarding check interrupted.");
+            }
+        }, "traffic-boarding");
+        boarding.setDaemon(true);
+        boarding.start();
+    }
+
+    private void arrive(Arrival arrival) {
+        if (arrival.from() >= waiting.length || arrival.to() >= waiting.length) {
+            return;
+        }
+        Direction direction = Direction.between(arrival.from(), arrival.to());
+        waiting[arrival.from()][index(direction)].add(arrival.to());
+        api.registerHallCall(arrival.from(), direction);
+    }
+
+    private void board() {
+        for (int id = 1; ; id++) {
+            int floor = api.getElevatorFloor(id);
+            if (floor < 0) {
+                return;
+            }
+            if (!api.isElevatorDoorOpen(id) || floor >= waiting.length) {
+                continue;
+            }
+            ElevatorPanel.Direction leaving = api.getElevatorDirection(id);
+            if (leaving != ElevatorPanel.Direction.DOWN) {
+                board(id, floor, Direction.UP);
+            }
+            if (leaving != ElevatorPanel.Direction.UP) {
+                board(id, floor, Direction.DOWN);
+            }
+        }
+    }
+
+    private void board(int id, int floor, Direction direction) {
+        if (api.isHallCallPending(floor, direction)) {
+            return;
+        }
+        ArrayDeque<Integer> queue = waiting[floor][index(direction)];
+        Integer to;
+        while ((to = queue.pollFirst()) != null) {
+            api.sendFloorRequest(id, to);
+        }
+    }
+
+    private static int index(Direction direction) {
+        return direction == Direction.UP ? 0 : 1;
+    }
+}
@@ -6,6 +6,8 @@ package Message;
  *  2 = Elevator 2 only
  *  3 = Elevator 3 only
  *  4 = Elevator 4 only
+ *  n = Elevator n only, up to MAX_CARS (see car())
+ *  MAX_CARS + 1 and up = named topics handed out by the broker
  *
  * Subtopic: UNUSED → always 0
  */
@@ -15,5 +17,18 @@ public final class Channels {
     public static final int E2 = 2;
     public static final int E3 = 3;
     public static final int E4 = 4;
+
+    // Topic ids 1..MAX_CARS are reserved for cars
+    public static final int MAX_CARS = 64;
+    public static final int FIRST_NAMED = MAX_CARS + 1;
+
+    /** Topic of one elevator (1-based). */
+    public static int car(int elevatorId) {
+        if (elevatorId < 1 || elevatorId > MAX_CARS) {
+            throw new IllegalArgumentException("No elevator " + elevatorId);
+        }
+        return elevatorId;
+    }
+
     private Channels() {}
 }
\ No newline at end of file
@@ -9,19 +9,38 @@ package Message;
  *   arg    =  body        & 0xFFFF    (signedness not important for our small args)
  *
  * Opcodes (small ints):
- *   1 START        (no arg)
- *   2 STOP         (no arg)
- *   3 RESET        (no arg)
- *   4 FIRE_ON      (no arg)
- *   5 FIRE_CLEAR   (no arg)
- *   6 GOTO         (arg = target floor 1..10)
- *   7 OPEN         (no arg)
- *   8 CLOSE        (no arg)
- *   9 ENABLE       (no arg)
- *  10 DISABLE      (no arg)
- *  11 STATUS       (arg packs a few flags; optional – for logging/diagnostics)
+ *   1 STOP            (no arg)
+ *   2 START           (no arg)
+ *   3 RESET           (no arg)
+ *   4 FIRE_CLEAR      (no arg)
+ *   5 MODE            (no arg)
+ *   6 START_ELEVATOR  (no arg)
+ *   7 STOP_ELEVATOR   (no arg)
+ *   8 HALL_CALL       (arg = floor + direction, see hallCallArg)
+ *   9 STATUS          (arg = car state, see statusArg; sent on the car's own topic)
+ *  10 ADD_STOPS       (arg = floor set, see setArg; sent on the car's own topic)
+ *  11 ENABLE_CARS     (arg = car set, see setArg)
+ *  12 DISABLE_CARS    (arg = car set, see setArg)
+ *  13 CLEAR_HALL_CALLS (arg = floor range, see rangeArg; both directions)
  *
- * STATUS arg packing (optional):
+ * HALL_CALL arg packing:
+ *   bits  0..7   = floor (1..255)
+ *   bits  8..9   = direction (1=UP,2=DOWN)
+ *
+ * Set arg packing (ADD_STOPS, ENABLE_CARS, DISABLE_CARS):
+ *   bits  0..9   = members of window w: bit i set = number 10*w + i + 1
+ *   bits 10..14  = window w (0..31), so numbers 1..320 (any floor)
+ *   bit      15  = more (1 = the next message on this topic is another
+ *                  window of the same set)
+ *   A set spanning several windows takes one message per window, sent back
+ *   to back (setBodies); the receiver applies them together once the window
+ *   without the more bit is in.
+ *
+ * CLEAR_HALL_CALLS arg packing:
+ *   bits  0..7   = first floor
+ *   bits  8..15  = last floor (inclusive)
+ *
+ * STATUS arg packing:
  *   bits  0..7   = floor (0..255)
  *   bit       8  = doorOpen (1=yes)
  *   bit       9  = isMoving (1=yes)
@@ -36,6 +55,15 @@ public final class Commands {
     public static final int MODE = 5;
     public static final int START_ELEVATOR = 6;
     public static final int STOP_ELEVATOR = 7;
+    public static final int HALL_CALL = 8;
+    public static final int STATUS = 9;
+    public static final int ADD_STOPS = 10;
+    public static final int ENABLE_CARS = 11;
+    public static final int DISABLE_CARS = 12;
+    public static final int CLEAR_HALL_CALLS = 13;
+
+    // Highest floor a HALL_CALL, STATUS or CLEAR_HALL_CALLS arg can carry
+    public static final int MAX_FLOOR = 0xFF;
 
     // encode/decode helpers
     public static int encode(int opcode, int arg) {
@@ -61,5 +89,64 @@ public final class Commands {
     public static boolean statusMoving(int a)   { return ((a >>> 9) & 1) == 1; }
     public static int statusDirCode(int a)      { return (a >>> 10) & 0x3; }
 
+    // helpers for HALL_CALL arg packing
+    public static int hallCallArg(int floor, int dirCode) {
+        return (floor & 0xFF) | ((dirCode & 0x3) << 8);
+    }
+    public static int hallCallFloor(int a)   { return a & 0xFF; }
+    public static int hallCallDirCode(int a) { return (a >>> 8) & 0x3; }
+
+    // helpers for set args (ADD_STOPS, ENABLE_CARS, DISABLE_CARS)
+    public static final int SET_WINDOW = 10;
+    public static final int SET_WINDOWS = 32;
+    public static final int MAX_SET_MEMBER = SET_WINDOW * SET_WINDOWS;
+
+    public static int setArg(int window, int bits, boolean more) {
+        return (bits & 0x3FF) | ((window & 0x1F) << 10) | (more ? 1 << 15 : 0);
+    }
+    public static int setWindow(int a)   { return (a >>> 10) & 0x1F; }
+    public static int setBits(int a)     { return a & 0x3FF; }
+    public static boolean setMore(int a) { return (a & (1 << 15)) != 0; }
+    /** Lowest number in the set window, i.e. the number bit 0 stands for. */
+    public static int setBase(int a)     { return setWindow(a) * SET_WINDOW + 1; }
+    public static boolean isSet(int opcode) {
+        return opcode == ADD_STOPS || opcode == ENABLE_CARS || opcode == DISABLE_CARS;
+    }
+
+    /**
+     * Bodies carrying the given numbers (1..MAX_SET_MEMBER), one per window
+     * used, in window order. All but the last have the more bit set, so
+     * publish them in this order and with nothing else in between.
+     */
+    public static int[] setBodies(int opcode, int... members) {
+        int[] windows = new int[SET_WINDOWS];
+        for (int m : members) {
+            if (m < 1 || m > MAX_SET_MEMBER) {
+                throw new IllegalArgumentException("Set member out of range: " + m);
+            }
+            windows[(m - 1) / SET_WINDOW] |= 1 << ((m - 1) % SET_WINDOW);
+        }
+        int used = 0;
+        for (int bits : windows) {
+            if (bits != 0) used++;
+        }
+        int[] bodies = new int[used];
+        int n = 0;
+        for (int w = 0; w < windows.length; w++) {
+            if (windows[w] != 0) {
+                n++;
+                bodies[n - 1] = encode(opcode, setArg(w, windows[w], n < used));
+            }
+        }
+        return bodies;
+    }
+
+    // helpers for CLEAR_HALL_CALLS arg packing
+    public static int rangeArg(int first, int last) {
+        return (first & 0xFF) | ((last & 0xFF) << 8);
+    }
+    public static int rangeFirst(int a) { return a & 0xFF; }
+    public static int rangeLast(int a)  { return (a >>> 8) & 0xFF; }
+
     private Commands() {}
 }
\ No newline at end of file
@@ -5,6 +5,8 @@ public class Message {
     private int subTopic;
     //private String body;
     private int body;
+    // Absolute expiry in epoch millis, 0 = never expires
+    private long deadline;
 
 
     /**
@@ -21,12 +23,38 @@ public class Message {
     }
 
     /**
-     * Topic-SubTopic-Body
+     * Message constructor with an expiry
+     *
+     * @param topic    Topic
+     * @param subTopic Subtopic
+     * @param body     Body
+     * @param deadline Epoch millis after which the message is stale (0 = never)
+     */
+    public Message(int topic, int subTopic, int body, long deadline) {
+        this(topic, subTopic, body);
+        this.deadline = deadline;
+    }
+
+    /**
+     * Message that expires ttlMillis from now
+     *
+     * @param ttlMillis Time to live in milliseconds
+     * @return Message
+     */
+    public static Message withTtl(int topic, int subTopic, int body, long ttlMillis) {
+        return new Message(topic, subTopic, body, System.currentTimeMillis() + ttlMillis);
+    }
+
+    /**
+     * Topic-SubTopic-Body, plus -Deadline when the message expires
      *
      * @return String
      */
     @Override
     public String toString() {
+        if (deadline != 0) {
+            return topic + "-" + subTopic + "-" + body + "-" + deadline;
+        }
         return topic + "-" + subTopic + "-" + body;
     }
 
@@ -57,6 +85,25 @@ public class Message {
         return body;
     }
 
+    /**
+     * Get expiry of message
+     *
+     * @return Epoch millis, 0 if the message never expires
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Check whether the message is stale at the given time
+     *
+     * @param nowMillis Current epoch millis
+     * @return true if past its deadline
+     */
+    public boolean isExpired(long nowMillis) {
+        return deadline != 0 && deadline < nowMillis;
+    }
+
     /**
      * Turn string into a message object
      *
@@ -64,10 +111,20 @@ public class Message {
      * @return Message
      */
     public static Message parseStringToMsg(String line) {
-        String[] parts = line.split("-", 3);
-        int t = Integer.parseInt(parts[0]);
-        int st = Integer.parseInt(parts[1]);
-        int body = Integer.parseInt(parts[2]);
-        return new Message(t, st, body);
+        // topic-subtopic-body[-deadline]; body may be negative ("1-0--5")
+        int first = line.indexOf('-');
+        int second = line.indexOf('-', first + 1);
+        int third = line.indexOf('-', second + 2);
+        if (first < 0 || second < 0) {
+            throw new NumberFormatException("Expected <topic>-<subtopic>-<body>: " + line);
+        }
+        int t = Integer.parseInt(line, 0, first, 10);
+        int st = Integer.parseInt(line, first + 1, second, 10);
+        if (third < 0) {
+            return new Message(t, st, Integer.parseInt(line, second + 1, line.length(), 10));
+        }
+        int body = Integer.parseInt(line, second + 1, third, 10);
+        long deadline = Long.parseLong(line, third + 1, line.length(), 10);
+        return new Message(t, st, body, deadline);
     }
 }
\ No newline at end of file
@@ -8,8 +8,18 @@ public class Elevator {
     public String direction;
     public String status;
     public String mode;
+    public final int floors;
 
     public Elevator() {
+        this(10);
+    }
+
+    /**
+     * Elevator for a building with the given number of floors
+     * @param floors the top floor number
+     */
+    public Elevator(int floors) {
+        this.floors = floors;
         CurrentFloor = 0;
         DestinationFloor = 0;
         moving = false;
@@ -166,7 +176,7 @@ public class Elevator {
         }
 
         // validate the requested floor
-        if(destFloor > 10 || destFloor < 1){
+        if(destFloor > floors || destFloor < 1){
             throw new Exception("Invalid Floor Number");
         }
 
@@ -0,0 +1,224 @@
+package TestCode;
+
+import Message.Message;
+import bus.BusBroker;
+import bus.BusConfig;
+import bus.SoftwareBus;
+import bus.StandbyBroker;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Failover drill: runs a primary broker in a child process and a standby in
+ * this one, kills the primary and measures how long until a message published
+ * after the kill reaches a subscriber again. Also checks that topic ids
+ * assigned by the primary still hold on the standby, and that the standby's
+ * replay does not hand the subscriber messages it already had. A second
+ * publisher keeps sending through the kill and the takeover; its messages
+ * must reach the subscriber in the order sent, none twice, and a client
+ * resuming from the start gets the replay and the live traffic in sequence.
+ *
+ * Usage: java TestCode.FailoverDrill [budgetMillis]   (default 500)
+ */
+public class FailoverDrill {
+    private static final int PRIMARY_PORT = 9931;
+    private static final int STANDBY_PORT = 9932;
+    private static final int HEARTBEAT = 50;
+
+    public static void main(String[] args) throws Exception {
+        long budget = args.length > 0 ? Long.parseLong(args[0]) : 500;
+
+        Process primary = new ProcessBuilder(
+                System.getProperty("java.home") + "/bin/java",
+                "-cp", System.getProperty("java.class.path"),
+                "bus.BusBroker", "--port=" + PRIMARY_PORT, "--heartbeat=" + HEARTBEAT)
+                .inheritIO()
+                .start();
+        BusConfig primaryConfig = new BusConfig().setPort(PRIMARY_PORT);
+        while (!BusBroker.isRunning(primaryConfig, 100)) {
+            Thread.sleep(10);
+        }
+
+        StandbyBroker standby = new StandbyBroker(new BusConfig()
+                .setPort(STANDBY_PORT)
+                .setPrimary("localhost:" + PRIMARY_PORT)
+                .setHeartbeatMillis(HEARTBEAT), 1024);
+        standby.start();
+
+        SoftwareBus subscriber = new SoftwareBus(false, clientConfig());
+        SoftwareBus publisher = new SoftwareBus(false, clientConfig());
+        SoftwareBus streamer = new SoftwareBus(false, clientConfig());
+        subscriber.subscribe(1, 0);
+
+        System.out.println("Checking delivery through the primary");
+        if (!roundTrip(publisher, subscriber, 1, 2000)) {
+            System.out.println("FAILED: no delivery through the primary");
+            primary.destroyForcibly();
+            System.exit(1);
+        }
+
+        // Named topic assigned by the primary; the standby must keep its id
+        int namedId = publisher.declareTopic("drill.named");
+        Thread.sleep(100);
+        Set<Integer> received = new HashSet<>();
+        int duplicates = drain(subscriber, received);
+
+        // Live traffic during the takeover, subtopic 3, bodies counting up
+        Thread stream = new Thread(() -> {
+            for (int i = 0; !Thread.currentThread().isInterrupted(); i++) {
+                streamer.publish(new Message(1, 3, i));
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "drill-stream");
+        stream.setDaemon(true);
+        stream.start();
+        Thread.sleep(100);
+
+        System.out.println("Killing primary");
+        long killed = System.nanoTime();
+        primary.destroyForcibly();
+
+        boolean delivered = roundTrip(publisher, subscriber, 2, 10 * budget);
+        long elapsed = (System.nanoTime() - killed) / 1_000_000;
+
+        System.out.println("Standby took over in " + standby.getTakeoverMillis() + " ms");
+        System.out.println("Subscriber failed over in " + subscriber.getLastFailoverMillis() + " ms");
+        System.out.println("End-to-end failover time: " + elapsed + " ms (budget " + budget + " ms)");
+        boolean topicsKept = checkTopics(namedId);
+        boolean replayOrdered = checkReplay();
+        stream.interrupt();
+        Thread.sleep(200);
+        duplicates += drain(subscriber, received);
+        System.out.println("Messages received twice: " + duplicates);
+        boolean streamOrdered = checkStream(subscriber);
+        boolean passed = delivered && elapsed <= budget && topicsKept && duplicates == 0 && streamOrdered
+                && replayOrdered;
+        System.out.println(passed ? "PASSED" : "FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * A client of the standby sees the primary's id for an old name and a
+     * fresh id for a new one.
+     */
+    private static boolean checkTopics(int namedId) {
+        SoftwareBus late = new SoftwareBus(false, new BusConfig().setPort(STANDBY_PORT));
+        int sameId = late.declareTopic("drill.named");
+        int newId = late.declareTopic("drill.after");
+        System.out.println("Topic ids: drill.named " + namedId + " -> " + sameId + ", drill.after " + newId);
+        return sameId == namedId && newId != namedId;
+    }
+
+    /**
+     * Takes the queued probes from before the kill; returns how many were
+     * already in received.
+     */
+    private static int drain(SoftwareBus subscriber, Set<Integer> received) {
+        int duplicates = 0;
+        Message m;
+        while ((m = subscriber.get(1, 1)) != null) {
+            if (!received.add(m.getBody())) {
+                duplicates++;
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * Resumes from sequence 0 on the standby while the stream is live: the
+     * replay and the live frames after it must come in one rising sequence,
+     * each "#SEQ" right in front of its message.
+     */
+    private static boolean checkReplay() throws Exception {
+        try (Socket socket = new Socket("localhost", STANDBY_PORT)) {
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            out.println(SoftwareBus.SINCE + 0);
+            out.println(SoftwareBus.SUBS + 1);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            socket.setSoTimeout(1000);
+            long deadline = System.currentTimeMillis() + 300;
+            long last = 0;
+            long stamp = -1;
+            int messages = 0;
+            int bad = 0;
+            while (System.currentTimeMillis() < deadline) {
+                String line = in.readLine();
+                if (line == null) {
+                    break;
+                }
+                if (line.startsWith(SoftwareBus.SEQ)) {
+                    // Two stamps in a row: a line got in between
+                    bad += stamp >= 0 ? 1 : 0;
+                    stamp = Long.parseLong(line.substring(SoftwareBus.SEQ.length()));
+                } else if (!line.startsWith(SoftwareBus.CONTROL_PREFIX)) {
+                    bad += stamp <= last ? 1 : 0;
+                    last = Math.max(last, stamp);
+                    stamp = -1;
+                    messages++;
+                }
+            }
+            System.out.println("Resumed from 0: " + messages + " messages up to #" + last + ", " + bad + " out of sequence");
+            return messages > 0 && bad == 0;
+        }
+    }
+
+    /**
+     * The streamed messages arrived in the order sent and none twice. Some
+     * sent into the dying primary may be missing.
+     */
+    private static boolean checkStream(SoftwareBus subscriber) {
+        int count = 0;
+        int last = -1;
+        int outOfOrder = 0;
+        Message m;
+        while ((m = subscriber.get(1, 3)) != null) {
+            if (m.getBody() <= last) {
+                outOfOrder++;
+            }
+            last = Math.max(last, m.getBody());
+            count++;
+        }
+        System.out.println("Streamed during takeover: " + count + " of " + (last + 1)
+                + " received, " + outOfOrder + " out of order or repeated");
+        return count > 0 && outOfOrder == 0;
+    }
+
+    /**
+     * Client settings: primary first, standby as failover.
+     */
+    private static BusConfig clientConfig() {
+        return new BusConfig()
+                .setPort(PRIMARY_PORT)
+                .setFailover("localhost:" + STANDBY_PORT)
+                .setHeartbeatMillis(HEARTBEAT);
+    }
+
+    /**
+     * Publishes probes with the given subtopic until one arrives or the time runs out.
+     */
+    private static boolean roundTrip(SoftwareBus publisher, SoftwareBus subscriber, int subtopic, long timeoutMillis)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        int probe = 0;
+        while (System.currentTimeMillis() < deadline) {
+            publisher.publish(new Message(1, subtopic, probe++));
+            Thread.sleep(5);
+            Message m;
+            while ((m = subscriber.get(1, subtopic)) != null) {
+                if (m.getSubTopic() == subtopic) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
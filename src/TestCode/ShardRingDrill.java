@@ -0,0 +1,57 @@
+package TestCode;
+
+import bus.ShardRing;
+import bus.TopicRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shard ring drill: grows a ring one shard at a time and checks that each
+ * step moves only about 1/N of the topics, all of them to the new shard,
+ * and that every shard ends up with a fair share.
+ *
+ * Usage: java TestCode.ShardRingDrill [maxShards]   (default 8)
+ */
+public class ShardRingDrill {
+    // Relative slack allowed around the ideal 1/N
+    private static final double TOLERANCE = 0.4;
+
+    public static void main(String[] args) {
+        int maxShards = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int topics = TopicRegistry.MAX_TOPICS;
+        boolean passed = true;
+
+        List<String> shards = new ArrayList<>(List.of("localhost:10000"));
+        ShardRing ring = new ShardRing(shards);
+        for (int n = 2; n <= maxShards; n++) {
+            shards.add("localhost:" + (10000 + n - 1));
+            ShardRing grown = new ShardRing(shards);
+            int moved = 0;
+            int movedElsewhere = 0;
+            int[] owned = new int[n];
+            for (int topic = 0; topic < topics; topic++) {
+                int after = grown.shardFor(topic);
+                owned[after]++;
+                if (!ring.ownerOf(topic).equals(grown.ownerOf(topic))) {
+                    moved++;
+                    if (after != n - 1) {
+                        movedElsewhere++;
+                    }
+                }
+            }
+            double share = (double) moved / topics;
+            double ideal = 1.0 / n;
+            boolean ok = Math.abs(share - ideal) <= ideal * TOLERANCE && movedElsewhere == 0;
+            for (int count : owned) {
+                ok &= Math.abs((double) count / topics - ideal) <= ideal * TOLERANCE;
+            }
+            System.out.printf("%s %d -> %d shards: moved %.1f%% (ideal %.1f%%), %d not to the new shard%n",
+                    ok ? "ok  " : "FAIL", n - 1, n, 100 * share, 100 * ideal, movedElsewhere);
+            passed &= ok;
+            ring = grown;
+        }
+        System.out.println(passed ? "PASSED" : "FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+}
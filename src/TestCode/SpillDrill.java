@@ -0,0 +1,78 @@
+package TestCode;
+
+import Message.Message;
+import bus.BusBroker;
+import bus.BusConfig;
+import bus.SoftwareBus;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Spill drill: floods a subscriber whose queue may only keep a few hundred
+ * messages on the heap, so the rest goes to disk across several segment
+ * files, then reads everything back. Subtopic 2 is taken first (a filtered
+ * read that skips over subtopic 1 on disk), then subtopic 1; each must come
+ * back complete and in the order it was sent.
+ *
+ * Usage: java TestCode.SpillDrill [messages]   (default 150000, over two segments)
+ */
+public class SpillDrill {
+    private static final int PORT = 9941;
+    private static final int IN_MEMORY = 500;
+
+    public static void main(String[] args) throws Exception {
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 150_000;
+        BusConfig brokerConfig = new BusConfig().setPort(PORT).setConsume(false);
+        BusBroker.start(brokerConfig);
+
+        Path spillDir = Files.createTempDirectory("spill-drill");
+        SoftwareBus subscriber = new SoftwareBus(false, new BusConfig().setPort(PORT)
+                .setMemoryBudget((long) IN_MEMORY * 64)
+                .setSpillDir(spillDir.toString()));
+        SoftwareBus publisher = new SoftwareBus(false, new BusConfig().setPort(PORT));
+        subscriber.subscribe(1, 0);
+        Thread.sleep(200);
+
+        System.out.println("Publishing " + total + " messages");
+        for (int i = 0; i < total; i++) {
+            publisher.publish(new Message(1, 1 + i % 2, i));
+        }
+        long deadline = System.currentTimeMillis() + 30_000;
+        long peak = 0;
+        while (peak < total - IN_MEMORY && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            peak = subscriber.getSpilledCount();
+        }
+        System.out.println("On disk: " + peak);
+
+        boolean passed = peak >= total - IN_MEMORY;
+        passed &= readBack(subscriber, 2, total);
+        passed &= readBack(subscriber, 1, total);
+        passed &= check("nothing left on disk", subscriber.getSpilledCount() == 0);
+        passed &= check("no messages dropped", subscriber.getDroppedCount() == 0);
+        System.out.println(passed ? "PASSED" : "FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Takes every message on the subtopic; bodies must be the ones sent on it, in order.
+     */
+    private static boolean readBack(SoftwareBus subscriber, int subtopic, int total) {
+        int expected = subtopic - 1;
+        Message m;
+        while ((m = subscriber.get(1, subtopic)) != null) {
+            if (m.getBody() != expected) {
+                return check("subtopic " + subtopic + " in order (got " + m.getBody()
+                        + ", expected " + expected + ")", false);
+            }
+            expected += 2;
+        }
+        return check("subtopic " + subtopic + " complete (next " + expected + ")", expected >= total);
+    }
+
+    private static boolean check(String name, boolean ok) {
+        System.out.println((ok ? "ok   " : "FAIL ") + name);
+        return ok;
+    }
+}
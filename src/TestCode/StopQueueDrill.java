@@ -0,0 +1,97 @@
+package TestCode;
+
+import dispatch.Direction;
+import dispatch.StopQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StopQueue drill: drives a car one floor at a time through next() and
+ * serve() and checks the floors it stops at come in LOOK order: everything
+ * ahead first, then turning around, with hall calls only taken in their
+ * own direction or where the car turns.
+ *
+ * Usage: java TestCode.StopQueueDrill
+ */
+public class StopQueueDrill {
+
+    private static boolean passed = true;
+
+    public static void main(String[] args) {
+        // Going up from 5: the stops above on the way up, then back down
+        StopQueue queue = new StopQueue();
+        for (int floor : new int[]{7, 3, 9, 1}) {
+            queue.addCarCall(floor);
+        }
+        check("car calls sweep up then down", run(queue, 5, Direction.UP), 7, 9, 3, 1);
+
+        // A down call above the car is the turning point after the car calls
+        queue = new StopQueue();
+        queue.addCarCall(6);
+        queue.addHallCall(8, Direction.DOWN);
+        queue.addCarCall(4);
+        check("turns at the farthest down call", run(queue, 2, Direction.UP), 4, 6, 8);
+
+        // An up call is passed on the way down and picked up on the way back
+        queue = new StopQueue();
+        queue.addCarCall(2);
+        queue.addHallCall(4, Direction.UP);
+        queue.addCarCall(7);
+        check("up call not taken going down", run(queue, 6, Direction.DOWN), 2, 4, 7);
+
+        // Idle car goes to the nearest stop first
+        queue = new StopQueue();
+        queue.addCarCall(3);
+        queue.addCarCall(8);
+        check("idle car takes the nearest", run(queue, 5, Direction.IDLE), 3, 8);
+
+        // Reversal: serving the last stop up leaves down for a down call there
+        queue = new StopQueue();
+        queue.addHallCall(9, Direction.DOWN);
+        queue.addCarCall(2);
+        check("leaves down from the top call", queue.serve(9, Direction.UP) == Direction.DOWN);
+        check("down call cleared once served", !queue.contains(9));
+
+        // Nothing left: the car goes idle
+        queue = new StopQueue();
+        queue.addCarCall(4);
+        check("idle once empty", queue.serve(4, Direction.UP) == Direction.IDLE && queue.isEmpty());
+
+        System.out.println(passed ? "PASSED" : "FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Moves a car from floor in dir until the queue is empty; returns the floors it stopped at.
+     */
+    private static List<Integer> run(StopQueue queue, int floor, Direction dir) {
+        List<Integer> stops = new ArrayList<>();
+        int next;
+        while ((next = queue.next(floor, dir)) >= 0 && stops.size() < 100) {
+            if (next == floor) {
+                stops.add(floor);
+                dir = queue.serve(floor, dir);
+            } else {
+                dir = Direction.between(floor, next);
+                floor += dir == Direction.UP ? 1 : -1;
+            }
+        }
+        return stops;
+    }
+
+    private static void check(String name, List<Integer> stops, int... expected) {
+        List<Integer> want = new ArrayList<>();
+        for (int floor : expected) {
+            want.add(floor);
+        }
+        boolean ok = stops.equals(want);
+        System.out.println((ok ? "ok   " : "FAIL ") + name + ": stops " + stops + (ok ? "" : ", expected " + want));
+        passed &= ok;
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "ok   " : "FAIL ") + name);
+        passed &= ok;
+    }
+}
@@ -0,0 +1,76 @@
+package bus;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Standalone, headless bus broker.
+ * Runs the relay side of SoftwareBus without any JavaFX classes, so it can
+ * run on its own box and is up before any GUI or processor connects.
+ *
+ * Usage: java bus.BusBroker [--host=localhost] [--port=9999] [--max-clients=N] [--max-queue=N]
+ *                           [--shards=host:port,host:port]
+ *                           [--heartbeat=millis]
+ *                           [--weights=name=w,...] [--topic-weights=topic=w,...]
+ *                           [--rate-limits=name=perSecond,...] [--control-clients=name,...]
+ *                           [--control-share=0.5] [--max-inbound=N]
+ */
+public final class BusBroker {
+
+    private BusBroker() {}
+
+    /**
+     * Starts a relay-only server. The broker does not keep its own copy of the
+     * traffic since nothing on the broker side ever calls get().
+     */
+    public static SoftwareBus start(BusConfig config) {
+        return start(config, new TopicRegistry());
+    }
+
+    /**
+     * Starts a relay-only server that keeps the given topic ids.
+     */
+    static SoftwareBus start(BusConfig config, TopicRegistry topics) {
+        return start(config, topics, null);
+    }
+
+    /**
+     * Same, replaying the given recent traffic to clients that fail over to it.
+     */
+    static SoftwareBus start(BusConfig config, TopicRegistry topics, RecentMessages recent) {
+        config.setConsume(false);
+        return new SoftwareBus(true, config, topics, recent);
+    }
+
+    /**
+     * Starts a broker in this process unless one is already listening on the
+     * configured host/port. Returns the new broker, or null if one was running.
+     */
+    public static SoftwareBus startIfAbsent(BusConfig config) {
+        if (isRunning(config, 200)) {
+            return null;
+        }
+        return start(config);
+    }
+
+    /**
+     * Checks whether something accepts connections on the configured host/port.
+     */
+    public static boolean isRunning(BusConfig config, int timeoutMillis) {
+        try (Socket probe = new Socket()) {
+            probe.connect(new InetSocketAddress(config.getHost(), config.getPort()), timeoutMillis);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static void main(String[] args) {
+        long startNanos = System.nanoTime();
+        BusConfig config = BusConfig.fromArgs(args);
+        start(config);
+        double startupMillis = (System.nanoTime() - startNanos) / 1_000_000.0;
+        Log.info(String.format("Bus broker listening on %s (ready in %.1f ms)", config, startupMillis));
+    }
+}
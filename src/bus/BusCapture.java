@@ -0,0 +1,137 @@
+package bus;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records all bus traffic with its timing, for BusReplay.
+ * Connects to a broker as a traffic tap (it never sends "#SUBS", so the
+ * broker forwards it every message from every client) and writes each
+ * message line as received.
+ *
+ * File format, one entry per line:
+ *   #CAPTURE <epoch millis when recording started>
+ *   <micros since start> <message line>
+ * Control frames (heartbeats, topic ids) are not recorded; named topics
+ * replay under the ids they had when captured.
+ *
+ * Usage: java bus.BusCapture capture.bus [--host=localhost] [--port=9999]
+ * Records until the broker goes away or the process is stopped.
+ */
+public class BusCapture {
+
+    static final String HEADER = "#CAPTURE ";
+
+    private final BusConfig config;
+    private final Path file;
+    private volatile Socket socket;
+    private volatile long recorded;
+    private Thread recorder;
+
+    public BusCapture(BusConfig config, Path file) {
+        this.config = config;
+        this.file = file;
+    }
+
+    /**
+     * Connects and starts recording on a background thread.
+     */
+    public void start() throws IOException {
+        Socket tap = new Socket();
+        tap.connect(new InetSocketAddress(config.getHost(), config.getPort()), 1000);
+        socket = tap;
+        BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        recorder = new Thread(() -> record(tap, out), "bus-capture");
+        recorder.start();
+        Log.info("Capturing " + config + " to " + file);
+    }
+
+    private void record(Socket tap, BufferedWriter out) {
+        try (out) {
+            long startNanos = System.nanoTime();
+            out.write(HEADER + System.currentTimeMillis());
+            out.newLine();
+            BufferedReader in = new BufferedReader(new InputStreamReader(tap.getInputStream()));
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith(SoftwareBus.CONTROL_PREFIX)) {
+                    continue;
+                }
+                out.write(Long.toString((System.nanoTime() - startNanos) / 1000));
+                out.write(' ');
+                out.write(line);
+                out.newLine();
+                recorded++;
+                // Keep the file current while traffic is quiet
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            if (socket != null) {
+                Log.warn("Capture stopped: " + e.getMessage());
+            }
+        }
+        Log.info("Captured " + recorded + " messages to " + file);
+    }
+
+    /**
+     * Disconnects and waits for the file to be closed.
+     */
+    public void stop() throws InterruptedException {
+        Socket tap = socket;
+        socket = null;
+        if (tap != null) {
+            try {
+                tap.close();
+            } catch (IOException e) {
+                // the recorder ends either way
+            }
+        }
+        if (recorder != null) {
+            recorder.join();
+        }
+    }
+
+    /**
+     * Messages written so far.
+     */
+    public long getRecorded() {
+        return recorded;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> options = new ArrayList<>();
+        String file = null;
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                options.add(arg);
+            } else {
+                file = arg;
+            }
+        }
+        if (file == null) {
+            throw new IllegalArgumentException("Usage: java bus.BusCapture capture.bus [--host=..] [--port=..]");
+        }
+        BusCapture capture = new BusCapture(BusConfig.fromArgs(options.toArray(new String[0])), Paths.get(file));
+        capture.start();
+        // Ctrl-C still leaves a complete file
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                capture.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "bus-capture-stop"));
+    }
+}
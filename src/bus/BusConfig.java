@@ -0,0 +1,287 @@
+package bus;
+
+/**
+ * Connection settings and limits for a SoftwareBus.
+ * Defaults match the original hard-coded values (localhost:9999).
+ * Values can come from system properties (bus.host, bus.port, ...) or
+ * from command line flags like --port=9999.
+ */
+public class BusConfig {
+
+    private String host = "localhost";
+    private int port = 9999;
+    // Maximum number of connected clients a server accepts (0 = no limit)
+    private int maxClients = 0;
+    // Maximum number of messages held in the local queue (0 = no limit)
+    private int maxQueue = 0;
+    // Server keeps received messages in its own queue for get()
+    private boolean consume = true;
+    // Shard map handed to clients when several brokers split the topics ("" = not sharded)
+    private volatile String shards = "";
+    // Server: send a heartbeat this often. Client: fail over after 3 missed beats (0 = off)
+    private int heartbeatMillis = 0;
+    // Client: standby brokers to fail over to ("host:port,host:port")
+    private String failover = "";
+    // Standby broker: the primary it mirrors ("host:port")
+    private String primary = "";
+    // Server: inbound frames buffered per client before its reader blocks
+    private int maxInbound = 1000;
+    // Server: scheduling weights per client name ("command-center=4,processor-1=2")
+    private String weights = "";
+    // Server: scheduling weights per topic ("0=4"), a heavier topic costs less per byte
+    private String topicWeights = "";
+    // Server: messages/second per client name, "*" for everyone else ("*=500")
+    private String rateLimits = "";
+    // Server: clients in the guaranteed control class
+    private String controlClients = "command-center";
+    // Server: minimum share of relayed bytes for the control class when it has traffic
+    private double controlShare = 0.5;
+    // Heap allowed for the local queue before it spills to disk (bytes, 0 = never spill)
+    private long memoryBudget = 0;
+    // Directory for spilled queue segments
+    private String spillDir = System.getProperty("java.io.tmpdir");
+    // Client: name sent to the server with "#HELLO" (empty = anonymous)
+    private String clientName = "";
+
+    public BusConfig() {
+    }
+
+    /**
+     * Reads the bus.* system properties (bus.host, bus.port, bus.maxClients, bus.maxQueue,
+     * bus.shards, bus.heartbeatMillis, bus.failover, bus.primary, bus.maxInbound, bus.weights,
+     * bus.topicWeights, bus.rateLimits, bus.controlClients, bus.controlShare, bus.clientName,
+     * bus.memoryBudget, bus.spillDir).
+     */
+    public static BusConfig fromSystemProperties() {
+        BusConfig config = new BusConfig();
+        config.host = System.getProperty("bus.host", config.host);
+        config.port = Integer.getInteger("bus.port", config.port);
+        config.maxClients = Integer.getInteger("bus.maxClients", config.maxClients);
+        config.maxQueue = Integer.getInteger("bus.maxQueue", config.maxQueue);
+        config.shards = System.getProperty("bus.shards", config.shards);
+        config.heartbeatMillis = Integer.getInteger("bus.heartbeatMillis", config.heartbeatMillis);
+        config.failover = System.getProperty("bus.failover", config.failover);
+        config.primary = System.getProperty("bus.primary", config.primary);
+        config.maxInbound = Integer.getInteger("bus.maxInbound", config.maxInbound);
+        config.weights = System.getProperty("bus.weights", config.weights);
+        config.topicWeights = System.getProperty("bus.topicWeights", config.topicWeights);
+        config.rateLimits = System.getProperty("bus.rateLimits", config.rateLimits);
+        config.controlClients = System.getProperty("bus.controlClients", config.controlClients);
+        config.controlShare = Double.parseDouble(System.getProperty("bus.controlShare", String.valueOf(config.controlShare)));
+        config.clientName = System.getProperty("bus.clientName", config.clientName);
+        config.memoryBudget = Long.getLong("bus.memoryBudget", config.memoryBudget);
+        config.spillDir = System.getProperty("bus.spillDir", config.spillDir);
+        return config;
+    }
+
+    /**
+     * Starts from the system properties and applies --name=value flags on top.
+     */
+    public static BusConfig fromArgs(String[] args) {
+        BusConfig config = fromSystemProperties();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (name) {
+                case "host" -> config.host = value;
+                case "port" -> config.port = Integer.parseInt(value);
+                case "max-clients" -> config.maxClients = Integer.parseInt(value);
+                case "max-queue" -> config.maxQueue = Integer.parseInt(value);
+                case "shards" -> config.shards = value;
+                case "heartbeat" -> config.heartbeatMillis = Integer.parseInt(value);
+                case "failover" -> config.failover = value;
+                case "primary" -> config.primary = value;
+                case "max-inbound" -> config.maxInbound = Integer.parseInt(value);
+                case "weights" -> config.weights = value;
+                case "topic-weights" -> config.topicWeights = value;
+                case "rate-limits" -> config.rateLimits = value;
+                case "control-clients" -> config.controlClients = value;
+                case "control-share" -> config.controlShare = Double.parseDouble(value);
+                case "memory-budget" -> config.memoryBudget = Long.parseLong(value);
+                case "spill-dir" -> config.spillDir = value;
+                default -> throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+        return config;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public BusConfig setHost(String host) {
+        this.host = host;
+        return this;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public BusConfig setPort(int port) {
+        this.port = port;
+        return this;
+    }
+
+    public int getMaxClients() {
+        return maxClients;
+    }
+
+    public BusConfig setMaxClients(int maxClients) {
+        this.maxClients = maxClients;
+        return this;
+    }
+
+    public int getMaxQueue() {
+        return maxQueue;
+    }
+
+    public BusConfig setMaxQueue(int maxQueue) {
+        this.maxQueue = maxQueue;
+        return this;
+    }
+
+    public boolean isConsume() {
+        return consume;
+    }
+
+    public BusConfig setConsume(boolean consume) {
+        this.consume = consume;
+        return this;
+    }
+
+    public String getShards() {
+        return shards;
+    }
+
+    public BusConfig setShards(String shards) {
+        this.shards = shards;
+        return this;
+    }
+
+    public int getHeartbeatMillis() {
+        return heartbeatMillis;
+    }
+
+    public BusConfig setHeartbeatMillis(int heartbeatMillis) {
+        this.heartbeatMillis = heartbeatMillis;
+        return this;
+    }
+
+    public String getFailover() {
+        return failover;
+    }
+
+    public BusConfig setFailover(String failover) {
+        this.failover = failover;
+        return this;
+    }
+
+    public String getPrimary() {
+        return primary;
+    }
+
+    public BusConfig setPrimary(String primary) {
+        this.primary = primary;
+        return this;
+    }
+
+    public int getMaxInbound() {
+        return maxInbound;
+    }
+
+    public BusConfig setMaxInbound(int maxInbound) {
+        this.maxInbound = maxInbound;
+        return this;
+    }
+
+    public String getWeights() {
+        return weights;
+    }
+
+    public BusConfig setWeights(String weights) {
+        this.weights = weights;
+        return this;
+    }
+
+    public String getTopicWeights() {
+        return topicWeights;
+    }
+
+    public BusConfig setTopicWeights(String topicWeights) {
+        this.topicWeights = topicWeights;
+        return this;
+    }
+
+    public String getRateLimits() {
+        return rateLimits;
+    }
+
+    public BusConfig setRateLimits(String rateLimits) {
+        this.rateLimits = rateLimits;
+        return this;
+    }
+
+    public String getControlClients() {
+        return controlClients;
+    }
+
+    public BusConfig setControlClients(String controlClients) {
+        this.controlClients = controlClients;
+        return this;
+    }
+
+    public double getControlShare() {
+        return controlShare;
+    }
+
+    public BusConfig setControlShare(double controlShare) {
+        this.controlShare = controlShare;
+        return this;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public BusConfig setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    public String getSpillDir() {
+        return spillDir;
+    }
+
+    public BusConfig setSpillDir(String spillDir) {
+        this.spillDir = spillDir;
+        return this;
+    }
+
+    public String getClientName() {
+        return clientName;
+    }
+
+    public BusConfig setClientName(String clientName) {
+        this.clientName = clientName;
+        return this;
+    }
+
+    /**
+     * Builds a config for a shard id in "host:port" form.
+     */
+    public static BusConfig forShard(String shard) {
+        int colon = shard.lastIndexOf(':');
+        return new BusConfig()
+                .setHost(shard.substring(0, colon))
+                .setPort(Integer.parseInt(shard.substring(colon + 1)));
+    }
+
+    @Override
+    public String toString() {
+        return host + ":" + port;
+    }
+}
@@ -0,0 +1,351 @@
+package bus;
+
+import Message.Message;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a BusCapture file back into a broker, so a recorded workload can be
+ * rerun as a load test against a command center or processor.
+ *
+ * Every message goes out on one connection in the order it was captured,
+ * so the order within each topic (and overall) is kept. Speed 1 keeps the
+ * recorded gaps, N plays N times faster, 0 sends as fast as the broker
+ * takes them. Deadlines are moved along so a message has the same time
+ * left when replayed as it had when captured.
+ *
+ * The report says how far behind the system fell:
+ *   send lag: how late each message went out against its schedule (grows
+ *             when the broker pushes back and stops reading)
+ *   relay lag: from sending to seeing it come back through the broker on a
+ *             separate tap connection
+ *   behind: how much longer the whole replay took than it should have
+ *
+ * Usage: java bus.BusReplay capture.bus [speed, default 1; 0 = max] [--host=localhost] [--port=9999]
+ */
+public class BusReplay {
+
+    // Lines that did not come back through the broker within this long are counted as lost
+    private static final long GRACE_MILLIS = 2000;
+    // At full speed, flush the socket every this many messages
+    private static final int FLUSH_EVERY = 64;
+    // A tapped line is matched against this many of the oldest unseen sends
+    private static final int MATCH_WINDOW = 64;
+    private static final long SPIN_NANOS = 200_000;
+
+    /**
+     * Outcome of one replay. Lags are in milliseconds.
+     */
+    public record Report(long sent, long relayed, long lost, double speed,
+                         long capturedMillis, long elapsedMillis,
+                         Lag sendLag, Lag relayLag) {
+
+        /**
+         * Extra time the replay took beyond the captured span divided by the
+         * speed (0 at max speed, where there is no schedule to fall behind).
+         */
+        public long behindMillis() {
+            return speed <= 0 ? 0 : Math.max(0, elapsedMillis - (long) (capturedMillis / speed));
+        }
+
+        @Override
+        public String toString() {
+            String rate = speed <= 0 ? "max speed" : speed + "x";
+            return String.format("Replayed %d messages at %s in %.2f s (captured %.2f s, %.0f msg/s)"
+                            + " | send lag %s | relay lag %s | %d not relayed | behind %.2f s",
+                    sent, rate, elapsedMillis / 1000.0, capturedMillis / 1000.0,
+                    sent * 1000.0 / Math.max(1, elapsedMillis),
+                    sendLag, relayLag, lost, behindMillis() / 1000.0);
+        }
+    }
+
+    /**
+     * Lag distribution in 1 ms buckets up to 10 s (and one for longer).
+     */
+    public static final class Lag {
+        private static final int BUCKETS = 10_001;
+        private final long[] counts = new long[BUCKETS + 1];
+        private long count;
+        private long sumMicros;
+        private long maxMicros;
+
+        synchronized void record(long micros) {
+            micros = Math.max(0, micros);
+            counts[(int) Math.min(BUCKETS, micros / 1000)]++;
+            count++;
+            sumMicros += micros;
+            maxMicros = Math.max(maxMicros, micros);
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized double getMeanMillis() {
+            return count == 0 ? 0 : sumMicros / 1000.0 / count;
+        }
+
+        public synchronized double getMaxMillis() {
+            return maxMicros / 1000.0;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given percentile (0-100).
+         */
+        public synchronized long percentileMillis(double percentile) {
+            long rank = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return count == 0 ? "n/a" : String.format("mean %.1f p50 %d p95 %d p99 %d max %.1f ms",
+                    getMeanMillis(), percentileMillis(50), percentileMillis(95), percentileMillis(99), getMaxMillis());
+        }
+    }
+
+    private record Sent(String line, long nanos) {
+    }
+
+    private final BusConfig config;
+    private final Path file;
+    private final double speed;
+
+    // Sent but not yet seen on the tap, oldest first; guarded by itself
+    private final ArrayDeque<Sent> unseen = new ArrayDeque<>();
+    private final Lag sendLag = new Lag();
+    private final Lag relayLag = new Lag();
+    private long relayed;
+    private long lost;
+
+    /**
+     * @param speed 1 = as recorded, N = N times faster, 0 = as fast as possible
+     */
+    public BusReplay(BusConfig config, Path file, double speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("Replay speed cannot be negative: " + speed);
+        }
+        this.config = config;
+        this.file = file;
+        this.speed = speed;
+    }
+
+    /**
+     * Plays the whole file and waits for the broker to relay it.
+     */
+    public Report run() throws IOException, InterruptedException {
+        // Tap first: the broker accepts in order, so it is routed before anything is sent
+        try (BufferedReader capture = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             Socket tap = connect();
+             Socket sender = connect()) {
+            String header = capture.readLine();
+            if (header == null || !header.startsWith(BusCapture.HEADER)) {
+                throw new IllegalArgumentException("Not a bus capture: " + file);
+            }
+            long capturedAtMillis = Long.parseLong(header.substring(BusCapture.HEADER.length()).trim());
+
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(sender.getOutputStream(), StandardCharsets.UTF_8));
+            // Filtered with no topics: the broker sends this connection nothing but control frames
+            out.write(SoftwareBus.HELLO + "replay");
+            out.newLine();
+            out.write(SoftwareBus.SUBS);
+            out.newLine();
+            out.flush();
+            Thread drain = daemon("bus-replay-drain", () -> discard(sender));
+            Thread watcher = daemon("bus-replay-tap", () -> watch(tap));
+            drain.start();
+            watcher.start();
+
+            long startNanos = System.nanoTime();
+            long startMillis = System.currentTimeMillis();
+            long sent = 0;
+            // Timed from the first message, not from when the capture started
+            long firstOffsetMicros = -1;
+            long lastOffsetMicros = 0;
+            String entry;
+            while ((entry = capture.readLine()) != null) {
+                int space = entry.indexOf(' ');
+                if (space < 0) {
+                    continue;
+                }
+                long capturedMicros = Long.parseLong(entry.substring(0, space));
+                String line = entry.substring(space + 1);
+                if (firstOffsetMicros < 0) {
+                    firstOffsetMicros = capturedMicros;
+                }
+                long offsetMicros = capturedMicros - firstOffsetMicros;
+                lastOffsetMicros = offsetMicros;
+
+                long due = speed == 0 ? System.nanoTime() : startNanos + (long) (offsetMicros * 1000 / speed);
+                if (due - System.nanoTime() > 0) {
+                    // Nothing more to send for now: get what we have out first
+                    out.flush();
+                    waitUntil(due);
+                }
+                line = shiftDeadline(line, capturedAtMillis + capturedMicros / 1000);
+                long now = System.nanoTime();
+                sendLag.record((now - due) / 1000);
+                synchronized (unseen) {
+                    unseen.addLast(new Sent(line, now));
+                }
+                out.write(line);
+                out.newLine();
+                if (++sent % FLUSH_EVERY == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+            long elapsedMillis = System.currentTimeMillis() - startMillis;
+
+            // Give the broker time to pass on the tail
+            long giveUp = System.currentTimeMillis() + GRACE_MILLIS;
+            while (System.currentTimeMillis() < giveUp) {
+                synchronized (unseen) {
+                    if (unseen.isEmpty()) {
+                        break;
+                    }
+                }
+                Thread.sleep(10);
+            }
+            synchronized (unseen) {
+                lost += unseen.size();
+                unseen.clear();
+                return new Report(sent, relayed, lost, speed, lastOffsetMicros / 1000, elapsedMillis, sendLag, relayLag);
+            }
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress(config.getHost(), config.getPort()), 1000);
+        socket.setTcpNoDelay(true);
+        return socket;
+    }
+
+    private static Thread daemon(String name, Runnable body) {
+        Thread thread = new Thread(body, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    // Sleeps most of the way, then spins for the last bit for accurate timing
+    private static void waitUntil(long dueNanos) throws InterruptedException {
+        long left;
+        while ((left = dueNanos - System.nanoTime()) > 0) {
+            if (left > SPIN_NANOS) {
+                LockSupport.parkNanos(left - SPIN_NANOS);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Gives a message with a deadline the same time to live it had when it was captured.
+     */
+    private static String shiftDeadline(String line, long capturedMillis) {
+        Message message;
+        try {
+            message = Message.parseStringToMsg(line);
+        } catch (RuntimeException e) {
+            return line; // sent as recorded; the broker decides what to do with it
+        }
+        if (message.getDeadline() <= 0) {
+            return line;
+        }
+        long ttl = message.getDeadline() - capturedMillis;
+        return new Message(message.getTopic(), message.getSubTopic(), message.getBody(),
+                System.currentTimeMillis() + ttl).toString();
+    }
+
+    private static void discard(Socket socket) {
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            while (in.readLine() != null) {
+                // heartbeats and shard maps, nothing to do
+            }
+        } catch (IOException e) {
+            // replay is over
+        }
+    }
+
+    /**
+     * Tap thread: matches relayed lines to what was sent. Other clients'
+     * traffic shows up here too and simply matches nothing.
+     */
+    private void watch(Socket tap) {
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(tap.getInputStream()));
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith(SoftwareBus.CONTROL_PREFIX)) {
+                    continue;
+                }
+                long now = System.nanoTime();
+                synchronized (unseen) {
+                    match(line, now);
+                }
+            }
+        } catch (IOException e) {
+            // replay is over
+        }
+    }
+
+    // Everything sent before the matched line and still unseen was dropped by the broker
+    private void match(String line, long now) {
+        int index = 0;
+        for (Iterator<Sent> it = unseen.iterator(); it.hasNext() && index < MATCH_WINDOW; index++) {
+            Sent sent = it.next();
+            if (sent.line().equals(line)) {
+                for (int i = 0; i < index; i++) {
+                    unseen.removeFirst();
+                    lost++;
+                }
+                unseen.removeFirst();
+                relayed++;
+                relayLag.record((now - sent.nanos()) / 1000);
+                return;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> options = new ArrayList<>();
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            (arg.startsWith("--") ? options : positional).add(arg);
+        }
+        if (positional.isEmpty()) {
+            throw new IllegalArgumentException("Usage: java bus.BusReplay capture.bus [speed] [--host=..] [--port=..]");
+        }
+        double speed = positional.size() > 1 ? Double.parseDouble(positional.get(1)) : 1;
+        BusReplay replay = new BusReplay(BusConfig.fromArgs(options.toArray(new String[0])),
+                Paths.get(positional.get(0)), speed);
+        System.out.println(replay.run());
+    }
+}
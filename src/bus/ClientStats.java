@@ -0,0 +1,17 @@
+package bus;
+
+/**
+ * Inbound traffic counters for one client connection on a bus server.
+ *
+ * @param client    name sent with "#HELLO", or the socket address
+ * @param weight    scheduling weight
+ * @param control   served in the guaranteed control class
+ * @param received  frames read from the client
+ * @param forwarded frames relayed
+ * @param throttled times the client was skipped because of its rate limit
+ * @param expired   frames dropped at dequeue because their deadline passed
+ * @param queued    frames waiting right now
+ */
+public record ClientStats(String client, int weight, boolean control,
+                          long received, long forwarded, long throttled, long expired, int queued) {
+}
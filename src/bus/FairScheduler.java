@@ -0,0 +1,331 @@
+package bus;
+
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Server-side scheduler for inbound traffic (deficit round-robin).
+ * Every connection gets its own inbound queue; one thread takes frames from
+ * the queues in weighted round-robin order and hands them to the relay, so a
+ * flooding client only fills its own queue (and then stalls its own reader).
+ *
+ * Two classes are served: control clients (the command center) and everyone
+ * else. Whenever both have work, control gets at least controlShare of the
+ * bytes relayed, however many other clients are busy.
+ */
+class FairScheduler {
+
+    /**
+     * Receives frames in scheduled order.
+     */
+    interface Relay {
+        void relay(Socket sender, WireFrame frame);
+    }
+
+    private record Frame(WireFrame wire, int cost) {
+    }
+
+    private static final class Flow {
+        final Socket socket;
+        String name;
+        int weight = 1;
+        boolean control;
+        final ArrayDeque<Frame> queue = new ArrayDeque<>();
+        boolean active;
+        long deficit;
+
+        // Token bucket for the per-client rate limit (messages/second, 0 = off)
+        int ratePerSecond;
+        double tokens;
+        long lastRefillNanos = System.nanoTime();
+
+        long received;
+        long forwarded;
+        long throttled;
+        long expired;
+
+        Flow(Socket socket) {
+            this.socket = socket;
+            this.name = String.valueOf(socket.getRemoteSocketAddress());
+        }
+    }
+
+    // Bytes added to a flow's deficit per round, times its weight
+    private static final int QUANTUM = 512;
+
+    private final Relay relay;
+    private final int maxQueued;
+    private final double controlShare;
+    private final Map<String, Integer> weights;
+    private final Map<Integer, Integer> topicWeights;
+    private final Map<String, Integer> rateLimits;
+    private final List<String> controlClients;
+
+    private final Object lock = new Object();
+    private final Map<Socket, Flow> flows = new HashMap<>();
+    private final ArrayDeque<Flow> activeControl = new ArrayDeque<>();
+    private final ArrayDeque<Flow> activeNormal = new ArrayDeque<>();
+    private long controlServed;
+    private long normalServed;
+
+    FairScheduler(BusConfig config, Relay relay) {
+        this.relay = relay;
+        this.maxQueued = config.getMaxInbound();
+        this.controlShare = config.getControlShare();
+        this.weights = parsePairs(config.getWeights());
+        this.topicWeights = new HashMap<>();
+        parsePairs(config.getTopicWeights()).forEach((k, v) -> topicWeights.put(Integer.parseInt(k), v));
+        this.rateLimits = parsePairs(config.getRateLimits());
+        this.controlClients = List.of(config.getControlClients().split(","));
+
+        Thread schedulerThread = new Thread(this::run, "bus-scheduler");
+        schedulerThread.setDaemon(true);
+        schedulerThread.start();
+    }
+
+    void register(Socket socket) {
+        synchronized (lock) {
+            Flow flow = new Flow(socket);
+            flow.ratePerSecond = rateLimits.getOrDefault("*", 0);
+            flow.tokens = flow.ratePerSecond;
+            flows.put(socket, flow);
+        }
+    }
+
+    void unregister(Socket socket) {
+        synchronized (lock) {
+            Flow flow = flows.remove(socket);
+            if (flow != null) {
+                flow.queue.clear();
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Applies the weight, rate limit and class configured for a client name ("#HELLO name").
+     */
+    void identify(Socket socket, String name) {
+        synchronized (lock) {
+            Flow flow = flows.get(socket);
+            if (flow == null) {
+                return;
+            }
+            flow.name = name;
+            flow.weight = Math.max(1, weights.getOrDefault(name, 1));
+            flow.ratePerSecond = rateLimits.getOrDefault(name, rateLimits.getOrDefault("*", 0));
+            flow.tokens = flow.ratePerSecond;
+            flow.control = controlClients.contains(name);
+        }
+    }
+
+    /**
+     * Queues an inbound frame. Blocks the calling reader while its own queue is
+     * full, which pushes back on that client only.
+     */
+    void submit(Socket sender, WireFrame wire) {
+        int topicWeight = Math.max(1, topicWeights.getOrDefault(wire.getTopic(), 1));
+        Frame frame = new Frame(wire, Math.max(1, wire.length() / topicWeight));
+        synchronized (lock) {
+            Flow flow = flows.get(sender);
+            if (flow == null) {
+                return;
+            }
+            while (maxQueued > 0 && flow.queue.size() >= maxQueued && flows.get(sender) == flow) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            flow.received++;
+            flow.queue.add(frame);
+            if (!flow.active) {
+                flow.active = true;
+                flow.deficit = 0;
+                (flow.control ? activeControl : activeNormal).add(flow);
+            }
+            lock.notifyAll();
+        }
+    }
+
+    List<ClientStats> stats() {
+        synchronized (lock) {
+            List<ClientStats> result = new ArrayList<>();
+            for (Flow f : flows.values()) {
+                result.add(new ClientStats(f.name, f.weight, f.control,
+                        f.received, f.forwarded, f.throttled, f.expired, f.queue.size()));
+            }
+            return result;
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Flow flow;
+            Frame frame;
+            synchronized (lock) {
+                frame = null;
+                flow = null;
+                while (frame == null) {
+                    ArrayDeque<Flow> active = pickClass();
+                    if (active == null) {
+                        waitQuietly(0);
+                        continue;
+                    }
+                    if (throttled(active)) {
+                        // Nothing sendable in the class whose turn it is: serve the other one
+                        ArrayDeque<Flow> other = active == activeControl ? activeNormal : activeControl;
+                        if (other.isEmpty() || throttled(other)) {
+                            waitQuietly(millisUntilToken());
+                            continue;
+                        }
+                        active = other;
+                    }
+                    flow = active.peekFirst();
+                    frame = nextFrame(active, flow);
+                }
+                if (flow.control) {
+                    controlServed += frame.cost();
+                } else {
+                    normalServed += frame.cost();
+                }
+                flow.forwarded++;
+                lock.notifyAll(); // a reader may be waiting for queue space
+            }
+            relay.relay(flow.socket, frame.wire());
+        }
+    }
+
+    /**
+     * Chooses the class to serve so control keeps controlShare of the bytes
+     * while both are busy. Credit is not banked while a class is idle.
+     */
+    private ArrayDeque<Flow> pickClass() {
+        boolean control = !activeControl.isEmpty();
+        boolean normal = !activeNormal.isEmpty();
+        if (!control || !normal) {
+            controlServed = 0;
+            normalServed = 0;
+            return control ? activeControl : normal ? activeNormal : null;
+        }
+        return controlServed * (1 - controlShare) <= normalServed * controlShare ? activeControl : activeNormal;
+    }
+
+    /**
+     * One DRR step on the head flow of a class. Returns the frame to relay, or
+     * null if the flow used up its deficit (or its rate) and went to the back.
+     * Stale frames at the head are dropped first without using any share.
+     */
+    private Frame nextFrame(ArrayDeque<Flow> active, Flow flow) {
+        Frame head = flow.queue.peekFirst();
+        if (head != null && head.wire().getDeadline() != 0) {
+            long now = System.currentTimeMillis();
+            while (head != null && head.wire().isExpired(now)) {
+                flow.queue.pollFirst();
+                flow.expired++;
+                head = flow.queue.peekFirst();
+            }
+        }
+        if (head == null) {
+            active.pollFirst();
+            flow.active = false;
+            return null;
+        }
+        if (flow.deficit < head.cost()) {
+            flow.deficit += (long) QUANTUM * flow.weight;
+            active.addLast(active.pollFirst());
+            return null;
+        }
+        if (!takeToken(flow)) {
+            flow.throttled++;
+            active.addLast(active.pollFirst());
+            return null;
+        }
+        flow.queue.pollFirst();
+        flow.deficit -= head.cost();
+        if (flow.queue.isEmpty()) {
+            active.pollFirst();
+            flow.active = false;
+            flow.deficit = 0;
+        }
+        return head;
+    }
+
+    private boolean takeToken(Flow flow) {
+        if (flow.ratePerSecond <= 0) {
+            return true;
+        }
+        refill(flow);
+        if (flow.tokens < 1) {
+            return false;
+        }
+        flow.tokens -= 1;
+        return true;
+    }
+
+    private static void refill(Flow flow) {
+        long now = System.nanoTime();
+        flow.tokens = Math.min(flow.ratePerSecond,
+                flow.tokens + (now - flow.lastRefillNanos) * flow.ratePerSecond / 1e9);
+        flow.lastRefillNanos = now;
+    }
+
+    /**
+     * True when every flow in the class is out of rate tokens right now.
+     */
+    private static boolean throttled(ArrayDeque<Flow> active) {
+        for (Flow f : active) {
+            if (f.ratePerSecond <= 0) {
+                return false;
+            }
+            refill(f);
+            if (f.tokens >= 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * How long until the first active flow earns a token (at least 1 ms).
+     */
+    private long millisUntilToken() {
+        double wait = Double.MAX_VALUE;
+        for (ArrayDeque<Flow> active : List.of(activeControl, activeNormal)) {
+            for (Flow f : active) {
+                if (f.ratePerSecond > 0) {
+                    wait = Math.min(wait, (1 - f.tokens) * 1000 / f.ratePerSecond);
+                }
+            }
+        }
+        return wait == Double.MAX_VALUE ? 1 : Math.max(1, (long) Math.ceil(wait));
+    }
+
+    private void waitQuietly(long millis) {
+        try {
+            lock.wait(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Parses "name=value,name=value".
+     */
+    private static Map<String, Integer> parsePairs(String list) {
+        Map<String, Integer> map = new HashMap<>();
+        for (String pair : list.split(",")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                map.put(pair.substring(0, eq).trim(), Integer.parseInt(pair.substring(eq + 1).trim()));
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,76 @@
+package bus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Splits a socket's byte stream into '\n'-terminated lines without decoding
+ * them into Strings. Each line is copied once out of the read buffer (it
+ * outlives the buffer while it waits in the scheduler) and a "\r\n" ending is
+ * normalised to "\n".
+ */
+final class FrameReader {
+
+    private final InputStream in;
+    private byte[] buffer = new byte[8192];
+    private int start;
+    private int end;
+
+    FrameReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Next line including its '\n', or null at end of stream. A last line
+     * without a newline is returned with one added.
+     */
+    byte[] readLine() throws IOException {
+        // Bytes after start already searched; fill() may move start
+        int scanned = 0;
+        while (true) {
+            for (int i = start + scanned; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    return take(i);
+                }
+            }
+            scanned = end - start;
+            if (!fill()) {
+                if (start == end) {
+                    return null;
+                }
+                return take(end);
+            }
+        }
+    }
+
+    private byte[] take(int newline) {
+        int contentEnd = newline;
+        if (contentEnd > start && buffer[contentEnd - 1] == '\r') {
+            contentEnd--;
+        }
+        byte[] line = Arrays.copyOfRange(buffer, start, contentEnd + 1);
+        line[line.length - 1] = '\n';
+        start = Math.min(newline + 1, end);
+        return line;
+    }
+
+    /**
+     * Reads more bytes, compacting or growing the buffer first. False at end of stream.
+     */
+    private boolean fill() throws IOException {
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+        } else if (end == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int n = in.read(buffer, end, buffer.length - end);
+        if (n < 0) {
+            return false;
+        }
+        end += n;
+        return true;
+    }
+}
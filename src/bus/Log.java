@@ -0,0 +1,211 @@
+package bus;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous, level-controlled logger.
+ * Callers drop records into a lock-free ring buffer and a single background
+ * thread writes them to the console, so a log call never waits on console I/O.
+ *
+ * The level comes from the "bus.log.level" system property (default INFO).
+ * Per-message logging is DEBUG/TRACE and guarded with isEnabled(), so at the
+ * default level the message path does not even build the string.
+ */
+public final class Log {
+
+    public enum Level { TRACE, DEBUG, INFO, WARN, ERROR, OFF }
+
+    private record Entry(Level level, String text) {
+    }
+
+    // Ring buffer size, must be a power of two
+    private static final int CAPACITY = 8192;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final AtomicReferenceArray<Entry> ring = new AtomicReferenceArray<>(CAPACITY);
+    // Next slot a producer will claim
+    private static final AtomicLong tail = new AtomicLong();
+    // Next slot the writer will read (only the writer thread moves it)
+    private static final AtomicLong head = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+
+    private static volatile int threshold = parseLevel(System.getProperty("bus.log.level"), Level.INFO).ordinal();
+    private static volatile Thread writer;
+
+    private Log() {}
+
+    /**
+     * Sets the minimum level that gets written.
+     */
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public static Level getLevel() {
+        return Level.values()[threshold];
+    }
+
+    /**
+     * Cheap check for hot paths: guard string building with this.
+     */
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public static void trace(String text) { log(Level.TRACE, text); }
+    public static void debug(String text) { log(Level.DEBUG, text); }
+    public static void info(String text)  { log(Level.INFO, text); }
+    public static void warn(String text)  { log(Level.WARN, text); }
+    public static void error(String text) { log(Level.ERROR, text); }
+
+    /**
+     * Queues a record for the writer thread.
+     * If the buffer is full the record is dropped and counted instead of blocking.
+     */
+    public static void log(Level level, String text) {
+        if (level.ordinal() < threshold) {
+            return;
+        }
+        startWriter();
+        long slot;
+        do {
+            slot = tail.get();
+            if (slot - head.get() >= CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(slot, slot + 1));
+        ring.lazySet((int) (slot & MASK), new Entry(level, text));
+    }
+
+    /**
+     * Number of records thrown away because the buffer was full.
+     */
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Waits (up to the given time) until everything queued so far has been written.
+     */
+    public static void flush(long timeoutMillis) {
+        long target = tail.get();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (head.get() < target && System.currentTimeMillis() < deadline) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    private static void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        synchronized (Log.class) {
+            if (writer != null) {
+                return;
+            }
+            Thread t = new Thread(Log::writeLoop, "bus-log-writer");
+            t.setDaemon(true);
+            t.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(500)));
+            writer = t;
+        }
+    }
+
+    /**
+     * Drains the ring buffer in batches so each console write carries many records.
+     */
+    private static void writeLoop() {
+        StringBuilder outBatch = new StringBuilder();
+        StringBuilder errBatch = new StringBuilder();
+        long reportedDrops = 0;
+        while (true) {
+            long h = head.get();
+            int written = 0;
+            while (written < 256) {
+                int index = (int) (h & MASK);
+                Entry e = ring.get(index);
+                if (e == null) {
+                    break;
+                }
+                ring.lazySet(index, null);
+                h++;
+                written++;
+                StringBuilder target = e.level().ordinal() >= Level.WARN.ordinal() ? errBatch : outBatch;
+                target.append(e.text()).append('\n');
+            }
+            head.set(h);
+
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                errBatch.append("[log] dropped ").append(drops - reportedDrops).append(" records\n");
+                reportedDrops = drops;
+            }
+            emit(System.out, outBatch);
+            emit(System.err, errBatch);
+
+            if (written == 0) {
+                LockSupport.parkNanos(1_000_000);
+            }
+        }
+    }
+
+    private static void emit(PrintStream stream, StringBuilder batch) {
+        if (batch.length() > 0) {
+            stream.print(batch);
+            stream.flush();
+            batch.setLength(0);
+        }
+    }
+
+    private static Level parseLevel(String value, Level fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Lets through one call out of every n (sampling for repetitive records).
+     */
+    public static final class Sampler {
+        private final int every;
+        private final AtomicLong count = new AtomicLong();
+
+        public Sampler(int every) {
+            this.every = Math.max(1, every);
+        }
+
+        public boolean sample() {
+            return count.getAndIncrement() % every == 0;
+        }
+    }
+
+    /**
+     * Lets through at most perSecond calls per second, spaced evenly.
+     */
+    public static final class RateLimit {
+        private final long intervalNanos;
+        private final AtomicLong nextAllowed = new AtomicLong(Long.MIN_VALUE);
+
+        public RateLimit(int perSecond) {
+            this.intervalNanos = 1_000_000_000L / Math.max(1, perSecond);
+        }
+
+        public boolean tryAcquire() {
+            long now = System.nanoTime();
+            long next = nextAllowed.get();
+            if (next != Long.MIN_VALUE && now - next < 0) {
+                return false;
+            }
+            return nextAllowed.compareAndSet(next, now + intervalNanos);
+        }
+    }
+}
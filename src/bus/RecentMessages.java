@@ -0,0 +1,62 @@
+package bus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size ring of the most recent message lines and the primary's relay
+ * sequence number of each ("#SEQ"). A standby broker fills it while
+ * mirroring the primary, and replays the tail to clients that reconnect
+ * after a failover. Sequence numbers come from the one broker that relayed
+ * the messages, so no clocks are compared.
+ */
+public class RecentMessages {
+
+    /**
+     * One kept line and its relay sequence number.
+     */
+    public record Entry(long sequence, String line) {
+    }
+
+    private final long[] sequences;
+    private final String[] lines;
+    private long count;
+
+    public RecentMessages(int capacity) {
+        sequences = new long[capacity];
+        lines = new String[capacity];
+    }
+
+    public synchronized void add(long sequence, String line) {
+        int i = (int) (count % lines.length);
+        sequences[i] = sequence;
+        lines[i] = line;
+        count++;
+    }
+
+    /**
+     * All kept lines relayed after the given sequence number, oldest first.
+     */
+    public synchronized List<Entry> since(long sequence) {
+        List<Entry> result = new ArrayList<>();
+        long first = Math.max(0, count - lines.length);
+        for (long n = first; n < count; n++) {
+            int i = (int) (n % lines.length);
+            if (sequences[i] > sequence) {
+                result.add(new Entry(sequences[i], lines[i]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sequence number of the newest kept line, 0 if none.
+     */
+    public synchronized long lastSequence() {
+        return count == 0 ? 0 : sequences[(int) ((count - 1) % lines.length)];
+    }
+
+    public synchronized int size() {
+        return (int) Math.min(count, lines.length);
+    }
+}
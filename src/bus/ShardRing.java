@@ -0,0 +1,105 @@
+package bus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent hash ring that maps a topic to the broker (shard) owning it.
+ * Every shard is placed on the ring at many virtual points, so adding a shard
+ * only takes over roughly 1/N of the topics and the rest stay where they were.
+ *
+ * Immutable: a new shard list means a new ring.
+ */
+public final class ShardRing {
+
+    private static final int VIRTUAL_NODES = 128;
+
+    private final List<String> shards;
+    // Sorted ring positions and the shard index owning each position
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * @param shards shard ids in "host:port" form
+     */
+    public ShardRing(List<String> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = List.copyOf(shards);
+
+        int n = this.shards.size() * VIRTUAL_NODES;
+        long[][] entries = new long[n][2];
+        int k = 0;
+        for (int s = 0; s < this.shards.size(); s++) {
+            long base = this.shards.get(s).hashCode();
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                entries[k][0] = mix((base << 32) ^ v);
+                entries[k][1] = s;
+                k++;
+            }
+        }
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+        points = new long[n];
+        owners = new int[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = entries[i][0];
+            owners[i] = (int) entries[i][1];
+        }
+    }
+
+    /**
+     * Parses a shard map line like "localhost:9999,localhost:10000".
+     */
+    public static ShardRing parse(String shardList) {
+        List<String> shards = new ArrayList<>();
+        for (String s : shardList.split(",")) {
+            if (!s.isBlank()) {
+                shards.add(s.trim());
+            }
+        }
+        return new ShardRing(shards);
+    }
+
+    /**
+     * Index (into getShards()) of the shard that owns this topic.
+     */
+    public int shardFor(int topic) {
+        long h = mix(topic);
+        int i = Arrays.binarySearch(points, h);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        if (i == points.length) {
+            i = 0; // wrap around the ring
+        }
+        return owners[i];
+    }
+
+    public String ownerOf(int topic) {
+        return shards.get(shardFor(topic));
+    }
+
+    public List<String> getShards() {
+        return shards;
+    }
+
+    /**
+     * The shard map as sent to clients.
+     */
+    @Override
+    public String toString() {
+        return String.join(",", shards);
+    }
+
+    // 64-bit finalizer from MurmurHash3, spreads small topic numbers across the ring
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
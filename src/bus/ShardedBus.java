@@ -0,0 +1,168 @@
+package bus;
+
+import Message.Message;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Client side of a topic-sharded bus.
+ * Holds one SoftwareBus connection per broker and routes every topic to the
+ * broker that owns it on the consistent hash ring, so each broker only carries
+ * its share of the traffic.
+ *
+ * Brokers started with --shards=... send the shard map on connect; a newer map
+ * (for example after adding a broker) rebalances the subscriptions.
+ */
+public class ShardedBus {
+
+    private record Subscription(int topic, int subtopic) {
+    }
+
+    // Ring plus the connection for each of its shards, swapped as one unit
+    private record Routing(ShardRing ring, SoftwareBus[] owners) {
+    }
+
+    // Open connections keyed by shard id ("host:port")
+    private final Map<String, SoftwareBus> connections = new HashMap<>();
+    private final Set<Subscription> subscriptions = new HashSet<>();
+    // Topics that moved in a rebalance: old owner still holds queued messages
+    private final Map<Integer, SoftwareBus> previousOwners = new ConcurrentHashMap<>();
+
+    private volatile Routing routing;
+
+    /**
+     * Connects to every broker in the list ("host:port,host:port").
+     */
+    public ShardedBus(String shardList) {
+        updateShards(ShardRing.parse(shardList));
+    }
+
+    /**
+     * Publishes to the broker that owns the message's topic.
+     */
+    public void publish(Message message) {
+        ownerFor(message.getTopic()).publish(message);
+    }
+
+    /**
+     * Returns the id for a named topic. Ids are assigned by the first broker
+     * in the ring so every shard agrees on them.
+     */
+    public int declareTopic(String name) {
+        return routing.owners()[0].declareTopic(name);
+    }
+
+    /**
+     * Subscribes on the broker that owns the topic.
+     */
+    public synchronized void subscribe(int topic, int subtopic) {
+        subscriptions.add(new Subscription(topic, subtopic));
+        ownerFor(topic).subscribe(topic, subtopic);
+    }
+
+    /**
+     * Takes the first matching message, same contract as SoftwareBus.get().
+     * Messages still queued on a topic's previous owner are drained first so
+     * ordering holds across a rebalance.
+     */
+    public Message get(int topic, int subtopic) {
+        if (!previousOwners.isEmpty()) {
+            Message old = drainPrevious(topic, subtopic);
+            if (old != null) {
+                return old;
+            }
+        }
+        return ownerFor(topic).get(topic, subtopic);
+    }
+
+    private Message drainPrevious(int topic, int subtopic) {
+        SoftwareBus previous = previousOwners.get(topic);
+        if (previous == null) {
+            return null;
+        }
+        Message m = previous.get(topic, subtopic);
+        if (m == null) {
+            previousOwners.remove(topic, previous);
+            previous.unsubscribe(topic, subtopic);
+        }
+        return m;
+    }
+
+    /**
+     * Adds a broker, rebalances locally and sends the new map to every broker
+     * so they pass it on to their other clients.
+     */
+    public synchronized void addShard(String shard) {
+        List<String> shards = new ArrayList<>(routing.ring().getShards());
+        if (shards.contains(shard)) {
+            return;
+        }
+        shards.add(shard);
+        ShardRing newRing = new ShardRing(shards);
+        updateShards(newRing);
+        for (String s : newRing.getShards()) {
+            connections.get(s).sendControl(SoftwareBus.SHARDS + newRing);
+        }
+    }
+
+    /**
+     * Installs a shard map: connects to new brokers and moves subscriptions
+     * whose topic changed owner. Only topics owned by a new shard move.
+     */
+    private synchronized void updateShards(ShardRing newRing) {
+        Routing old = routing;
+        // Shards are only ever added, so a map with fewer of them is stale
+        if (old != null && (old.ring().toString().equals(newRing.toString())
+                || newRing.getShards().size() < old.ring().getShards().size())) {
+            return;
+        }
+        SoftwareBus[] newOwners = new SoftwareBus[newRing.getShards().size()];
+        for (int i = 0; i < newOwners.length; i++) {
+            String shard = newRing.getShards().get(i);
+            SoftwareBus bus = connections.get(shard);
+            if (bus == null) {
+                bus = new SoftwareBus(false, BusConfig.forShard(shard));
+                bus.setControlListener(this::onControl);
+                connections.put(shard, bus);
+            }
+            newOwners[i] = bus;
+        }
+
+        if (old != null) {
+            for (Subscription s : subscriptions) {
+                SoftwareBus oldOwner = old.owners()[old.ring().shardFor(s.topic())];
+                SoftwareBus newOwner = newOwners[newRing.shardFor(s.topic())];
+                if (oldOwner != newOwner) {
+                    newOwner.subscribe(s.topic(), s.subtopic());
+                    previousOwners.put(s.topic(), oldOwner);
+                }
+            }
+            Log.info("Rebalanced onto shards " + newRing);
+        }
+        routing = new Routing(newRing, newOwners);
+    }
+
+    private void onControl(String line) {
+        if (line.startsWith(SoftwareBus.SHARDS)) {
+            updateShards(ShardRing.parse(line.substring(SoftwareBus.SHARDS.length())));
+        }
+    }
+
+    private SoftwareBus ownerFor(int topic) {
+        Routing r = routing;
+        return r.owners()[r.ring().shardFor(topic)];
+    }
+
+    /**
+     * Current shard map.
+     */
+    public ShardRing getRing() {
+        return routing.ring();
+    }
+}
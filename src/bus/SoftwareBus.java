@@ -1,65 +1,313 @@
 package bus;
 
+import Message.Channels;
 import Message.Message;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 
 public class SoftwareBus {
 
+    // Lines starting with this are bus control frames, not messages
+    public static final String CONTROL_PREFIX = "#";
+    // Control frame carrying the shard map: "#SHARDS host:port,host:port"
+    public static final String SHARDS = "#SHARDS ";
+    // Sent by a client right after connecting: "#HELLO <client name>"
+    public static final String HELLO = "#HELLO ";
+    // Server liveness beat, sent every config.getHeartbeatMillis()
+    public static final String HEARTBEAT = "#HB";
+    // Sent by a client that may fail over: stamp every message sent to it with "#SEQ"
+    public static final String SEQUENCED = "#SEQUENCED";
+    // Server's relay sequence number of the message on the next line: "#SEQ 1234"
+    public static final String SEQ = "#SEQ ";
+    // Sent by a client right after failing over, before "#SUBS", instead of
+    // "#SEQUENCED": "#SINCE <sequence of last message received>"
+    public static final String SINCE = "#SINCE ";
+    // Client's full topic list, sent on connect: "#SUBS 0,1,7" (empty = nothing yet)
+    public static final String SUBS = "#SUBS ";
+    // Client gained / lost its first / last subscription on a topic: "#SUB 7"
+    public static final String SUB = "#SUB ";
+    public static final String UNSUB = "#UNSUB ";
+    // Client declares a named topic: "#TOPIC name"
+    public static final String TOPIC = "#TOPIC ";
+    // Server announces an assigned id: "#TOPICID name id"
+    public static final String TOPIC_ID = "#TOPICID ";
+
+    // Connection errors can repeat quickly when a peer goes away, keep them readable
+    private static final Log.RateLimit connectionErrors = new Log.RateLimit(5);
+
     private record Subscription(int topic, int subtopic) {
     }
 
-    // Local queue for received messages that match this processor's subscriptions
-    private final LinkedList<Message> queue;
+    // Live frames for a client that may still ask for a replay
+    private record Hold(long untilMillis, List<Held> frames) {
+    }
+
+    private record Held(long sequence, WireFrame frame) {
+    }
+
+    // A client that says nothing (a traffic tap) gets its held frames after this long
+    private static final long HOLD_MILLIS = 1000;
+
+    // Local queue for received messages that match this processor's subscriptions.
+    // Spills to disk past config.getMemoryBudget() bytes.
+    private final SpillQueue queue;
 
     // List of all subscriptions for this bus
     private final Set<Subscription> subscriptions;
+    // Same subscriptions as an array-indexed lookup for the receive path
+    private volatile SubscriptionTable subscriptionTable = SubscriptionTable.EMPTY;
+
+    // Topic names and ids: authoritative in server mode, a cache in client mode
+    private final TopicRegistry topicRegistry;
+
+    // Server mode: which clients get which topics
+    private final TopicRouter router = new TopicRouter();
 
     // For server mode: all currently connected client sockets
     private final Set<Socket> clientSockets;
 
+    // Messages dropped because the queue hit config.getMaxQueue()
+    private long droppedCount;
+
+    // Client mode: receives control frames sent by the server
+    private volatile Consumer<String> controlListener;
+
+    // Server mode: recent traffic replayed to clients that fail over to us
+    private volatile RecentMessages recentMessages;
+    // Server mode: number of the last frame relayed, only advanced by the scheduler thread
+    private volatile long relaySequence;
+    // Server mode: clients that asked for "#SEQ" stamps
+    private final Set<Socket> sequenced = ConcurrentHashMap.newKeySet();
+    // Server mode: one lock per client socket, held for every write to it so
+    // lines from different threads never interleave
+    private final Map<Socket, Object> writeLocks = new ConcurrentHashMap<>();
+    // Server mode: frames held back from new clients until their replay is
+    // written (only while recentMessages is set); guarded by the socket's write lock
+    private final Map<Socket, Hold> held = new ConcurrentHashMap<>();
+
+    // Server mode: fair scheduling of inbound frames across clients
+    private FairScheduler scheduler;
+
+    // Client mode: primary first, then standbys; guarded by sendLock
+    private final List<BusConfig> endpoints = new ArrayList<>();
+    private int endpointIndex;
+    private boolean connected;
+    private final List<String> pendingOut = new ArrayList<>();
+    private final Object sendLock = new Object();
+    private volatile long lastHeardMillis;
+    // Client mode: "#SEQ" stamp of the next message, and of the last one received
+    private long stampedSequence;
+    private volatile long lastSequence;
+    private volatile long lastFailoverMillis = -1;
+
     private ServerSocket serverSocket;
     private Socket busSocket;
     private PrintWriter out;
     private BufferedReader in;
 
     private boolean isServer;
-    private int port = 9999;
+    private final BusConfig config;
 
     public SoftwareBus(boolean isServer) {
+        this(isServer, BusConfig.fromSystemProperties());
+    }
+
+    public SoftwareBus(boolean isServer, BusConfig config) {
+        this(isServer, config, new TopicRegistry());
+    }
+
+    /**
+     * Starts with the given topic ids already assigned (a standby taking
+     * over keeps the ids the primary handed out).
+     */
+    SoftwareBus(boolean isServer, BusConfig config, TopicRegistry topicRegistry) {
+        this(isServer, config, topicRegistry, null);
+    }
+
+    /**
+     * Server that can replay recent traffic from its first client on (a
+     * standby taking over).
+     */
+    SoftwareBus(boolean isServer, BusConfig config, TopicRegistry topicRegistry, RecentMessages recent) {
+        if (recent != null) {
+            setRecentMessages(recent);
+        }
         this.isServer = isServer;
-        queue = new LinkedList<>();
+        this.config = config;
+        this.topicRegistry = topicRegistry;
+        queue = new SpillQueue(config.getMemoryBudget(), Path.of(config.getSpillDir()));
         subscriptions = new HashSet<>();
         clientSockets = new HashSet<>();
 
         if (isServer) {
             // Server mode: create a listening socket and start accept thread
             try {
-                serverSocket = new ServerSocket(port);
+                serverSocket = new ServerSocket(config.getPort(), 50, InetAddress.getByName(config.getHost()));
+                scheduler = new FairScheduler(config, this::relay);
                 acceptThread();
+                if (config.getHeartbeatMillis() > 0) {
+                    heartbeatThread();
+                }
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
         } else {
+            endpoints.add(config);
+            for (String standby : config.getFailover().split(",")) {
+                if (!standby.isBlank()) {
+                    endpoints.add(BusConfig.forShard(standby.trim()));
+                }
+            }
             // Client mode: connect to the server
             try {
-                busSocket = new Socket("localhost", port);
-                out = new PrintWriter(busSocket.getOutputStream(), true);
-                in = new BufferedReader(new InputStreamReader(busSocket.getInputStream()));
-                // Start listening for messages from server
-                readerThread(busSocket);
+                connect(config, false);
             } catch (IOException e) {
                 System.err.println("Please launch the Command Center first.");
                 System.exit(1);
             }
+            if (config.getHeartbeatMillis() > 0) {
+                watchdogThread();
+            }
+        }
+    }
+
+    /**
+     * Opens the client connection to one endpoint and starts reading from it.
+     */
+    private void connect(BusConfig endpoint, boolean resuming) throws IOException {
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress(endpoint.getHost(), endpoint.getPort()), 1000);
+        synchronized (sendLock) {
+            busSocket = socket;
+            out = new PrintWriter(socket.getOutputStream(), true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            if (!config.getClientName().isEmpty()) {
+                out.println(HELLO + config.getClientName());
+            }
+            // Before "#SUBS", so the broker writes the replay ahead of any live traffic
+            if (endpoints.size() > 1) {
+                out.println(resuming ? SINCE + lastSequence : SEQUENCED);
+            }
+            out.println(SUBS + subscribedTopics());
+            // Published while we were failing over, ahead of anything newer
+            for (String line : pendingOut) {
+                out.println(line);
+            }
+            pendingOut.clear();
+            lastHeardMillis = System.currentTimeMillis();
+            connected = true;
         }
+        // Start listening for messages from server
+        readerThread(socket);
+    }
+
+    /**
+     * Client mode: the connection to the current broker is gone. Cycles through
+     * the standbys (and the primary) until one accepts, asks it to replay what
+     * we missed and sends anything published in between.
+     */
+    private void failover(Socket lost) {
+        synchronized (sendLock) {
+            if (lost != busSocket || !connected) {
+                return;
+            }
+            connected = false;
+        }
+        closeQuietly(lost);
+        long start = System.nanoTime();
+        Log.warn("Lost bus connection to " + endpoints.get(endpointIndex) + ", failing over");
+        int attempt = 1;
+        while (true) {
+            int next = (endpointIndex + attempt) % endpoints.size();
+            try {
+                connect(endpoints.get(next), true);
+                synchronized (sendLock) {
+                    endpointIndex = next;
+                }
+                lastFailoverMillis = (System.nanoTime() - start) / 1_000_000;
+                Log.warn("Failed over to " + endpoints.get(next) + " in " + lastFailoverMillis + " ms");
+                return;
+            } catch (IOException e) {
+                attempt++;
+                if (attempt % endpoints.size() == 1) {
+                    // Went through every endpoint, give a standby a moment to take over
+                    sleepQuietly(10);
+                }
+            }
+        }
+    }
+
+    /**
+     * Server mode: tells every client (and standby) that this broker is alive.
+     */
+    private void heartbeatThread() {
+        Thread heartbeatThread = new Thread(() -> {
+            while (true) {
+                sleepQuietly(config.getHeartbeatMillis());
+                List<Socket> clients;
+                synchronized (clientSockets) {
+                    clients = new ArrayList<>(clientSockets);
+                }
+                for (Socket client : clients) {
+                    sendLine(client, HEARTBEAT);
+                }
+            }
+        });
+        heartbeatThread.setDaemon(true);
+        heartbeatThread.start();
+    }
+
+    /**
+     * Client mode: a broker that hangs without closing the socket misses its
+     * heartbeats; closing the socket sends the reader into failover.
+     */
+    private void watchdogThread() {
+        long timeout = 3L * config.getHeartbeatMillis();
+        Thread watchdogThread = new Thread(() -> {
+            while (true) {
+                sleepQuietly(config.getHeartbeatMillis());
+                Socket current;
+                synchronized (sendLock) {
+                    current = connected ? busSocket : null;
+                }
+                if (current != null && System.currentTimeMillis() - lastHeardMillis > timeout) {
+                    Log.warn("No heartbeat from " + endpoints.get(endpointIndex) + " for " + timeout + " ms");
+                    closeQuietly(current);
+                }
+            }
+        });
+        watchdogThread.setDaemon(true);
+        watchdogThread.start();
+    }
+
+    /**
+     * Time the last client failover took, or -1 if none happened.
+     */
+    public long getLastFailoverMillis() {
+        return lastFailoverMillis;
+    }
+
+    /**
+     * Server mode: recent traffic to replay on "#SINCE" (set by a standby broker).
+     * Relay numbering carries on from the last message kept.
+     */
+    public void setRecentMessages(RecentMessages recentMessages) {
+        this.relaySequence = Math.max(relaySequence, recentMessages.lastSequence());
+        this.recentMessages = recentMessages;
     }
 
     /**
@@ -71,8 +319,28 @@ public class SoftwareBus {
             try {
                 while (true) {
                     Socket newSocket = serverSocket.accept();
-                    clientSockets.add(newSocket);
-                    System.out.println("Client connected: " + newSocket);
+                    synchronized (clientSockets) {
+                        if (config.getMaxClients() > 0 && clientSockets.size() >= config.getMaxClients()) {
+                            Log.warn("Client limit reached, refusing: " + newSocket);
+                            newSocket.close();
+                            continue;
+                        }
+                        clientSockets.add(newSocket);
+                    }
+                    writeLocks.put(newSocket, new Object());
+                    if (recentMessages != null) {
+                        held.put(newSocket, new Hold(System.currentTimeMillis() + HOLD_MILLIS, new ArrayList<>()));
+                    }
+                    scheduler.register(newSocket);
+                    router.add(newSocket);
+                    if (!config.getShards().isEmpty()) {
+                        sendLine(newSocket, SHARDS + config.getShards());
+                    }
+                    List<String> names = topicRegistry.names();
+                    for (int id = Channels.FIRST_NAMED; id < names.size(); id++) {
+                        sendLine(newSocket, TOPIC_ID + names.get(id) + " " + id);
+                    }
+                    Log.info("Client connected: " + newSocket);
                     // Start listening for messages from this client
                     readerThread(newSocket);
                 }
@@ -85,58 +353,420 @@ public class SoftwareBus {
 
     /**
      * Starts a thread that listens for messages coming from a given socket.
-     * - In server mode: rebroadcasts received messages to all other clients.
+     * - In server mode: hands raw frames to the scheduler for relaying; only
+     * the routing header is parsed.
      * - In client mode: checks message topic/subtopic against subscriptions,
      * and stores it in the local queue if relevant.
      */
     private void readerThread(Socket socket) {
         Thread readerThread = new Thread(() -> {
             try {
+                if (isServer) {
+                    readFrames(socket);
+                    // Client hung up
+                    cleanupSocket(socket);
+                    return;
+                }
                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
                 String line;
                 while ((line = in.readLine()) != null) {
+                    lastHeardMillis = System.currentTimeMillis();
+                    if (line.startsWith(SEQ)) {
+                        stampedSequence = Long.parseLong(line.substring(SEQ.length()));
+                        continue;
+                    }
+                    if (line.startsWith(CONTROL_PREFIX)) {
+                        handleControl(socket, line);
+                        continue;
+                    }
                     Message message = Message.parseStringToMsg(line);
-                    if (isServer) {
-                        System.out.println("Bus (Server) received message:" + message);
-                        // Forward to all connected clients except the sender
-                        synchronized (clientSockets) {
-                            for (Socket client : clientSockets) {
-                                if (client != socket) {
-                                    PrintWriter temp = new PrintWriter(client.getOutputStream(), true);
-                                    temp.println(line);
-                                }
-                            }
-                        }
-                        synchronized (queue) {
-                            queue.add(message);
-                        }
-                    } else {
-                        System.out.println("Bus (Client) received message:" + message);
-                        // Client mode: filter and enqueue matching messages
-                        synchronized (subscriptions) {
-                            for (Subscription s : subscriptions) {
-                                if (s.topic() == message.getTopic() &&
-                                        (s.subtopic() == 0 || s.subtopic() == message.getSubTopic())) {
-                                    synchronized (queue) {
-                                        queue.add(message);
-                                        System.out.println("Client saved message\n" + queue.size() + " " + message);
-                                    }
-                                    // stop checking once matched
-                                    break;
-                                }
-                            }
+                    lastSequence = stampedSequence;
+                    if (Log.isEnabled(Log.Level.DEBUG)) {
+                        Log.debug("Bus (Client) received message:" + message);
+                    }
+                    // Client mode: filter and enqueue matching messages
+                    if (subscriptionTable.matches(message.getTopic(), message.getSubTopic())) {
+                        enqueue(message);
+                        if (Log.isEnabled(Log.Level.TRACE)) {
+                            Log.trace("Client saved message " + message);
                         }
                     }
-
+                }
+                if (endpoints.size() > 1) {
+                    failover(socket);
                 }
             } catch (IOException e) {
-                System.err.println("Connection error: " + e.getMessage());
+                if (!isServer && endpoints.size() > 1) {
+                    failover(socket);
+                    return;
+                }
+                if (connectionErrors.tryAcquire()) {
+                    Log.warn("Connection error: " + e.getMessage());
+                }
                 cleanupSocket(socket);
             }
         });
         readerThread.start();
     }
 
+    /**
+     * Server mode: reads raw lines off a client socket until it closes.
+     * Control frames are decoded; message frames only get their header read.
+     */
+    private void readFrames(Socket socket) throws IOException {
+        FrameReader reader = new FrameReader(socket.getInputStream());
+        byte[] line;
+        while ((line = reader.readLine()) != null) {
+            if (line[0] == CONTROL_PREFIX.charAt(0)) {
+                handleControl(socket, WireFrame.text(line));
+                continue;
+            }
+            WireFrame frame = WireFrame.parse(line);
+            if (Log.isEnabled(Log.Level.DEBUG)) {
+                Log.debug("Bus (Server) received message:" + frame);
+            }
+            // Relayed by the scheduler thread in fair order
+            scheduler.submit(socket, frame);
+        }
+    }
+
+    /**
+     * Server mode: forwards a scheduled frame to every client that takes its
+     * topic except the sender, and keeps it for get() unless this is a
+     * relay-only broker. The frame is written as received; it is only
+     * decoded into a Message when kept.
+     */
+    private void relay(Socket sender, WireFrame frame) {
+        long sequence = ++relaySequence;
+        byte[] stamped = sequenced.isEmpty() ? null
+                : frame.prefixed((SEQ + sequence + "\n").getBytes(StandardCharsets.UTF_8));
+        TopicRouter.Routes routes = router.routes();
+        List<Socket> broken = forward(routes.everything(), sender, frame, sequence, stamped, null);
+        broken = forward(routes.subscribers(frame.getTopic()), sender, frame, sequence, stamped, broken);
+        if (broken != null) {
+            broken.forEach(this::cleanupSocket);
+        }
+        if (config.isConsume()) {
+            enqueue(frame.decode());
+        }
+    }
+
+    private List<Socket> forward(Socket[] targets, Socket sender, WireFrame frame, long sequence,
+                                 byte[] stamped, List<Socket> broken) {
+        for (Socket client : targets) {
+            if (client != sender) {
+                try {
+                    synchronized (writeLock(client)) {
+                        Hold hold = held.isEmpty() ? null : held.get(client);
+                        if (hold != null && System.currentTimeMillis() < hold.untilMillis()) {
+                            // Stamped or not is decided when it is written
+                            hold.frames().add(new Held(sequence, frame));
+                            continue;
+                        }
+                        OutputStream out = client.getOutputStream();
+                        if (hold != null) {
+                            writeHeld(client, out);
+                        }
+                        out.write(sequenced.contains(client) ? stamp(frame, sequence, stamped) : frame.bytes());
+                    }
+                } catch (IOException e) {
+                    if (broken == null) {
+                        broken = new ArrayList<>();
+                    }
+                    broken.add(client);
+                }
+            }
+        }
+        return broken;
+    }
+
+    /**
+     * Inbound traffic counters per connected client (server mode).
+     */
+    public List<ClientStats> getClientStats() {
+        return isServer ? scheduler.stats() : List.of();
+    }
+
+    /**
+     * Handles a control frame.
+     * - In server mode: a new shard map replaces the configured one and is
+     * passed on to every connected client; "#SINCE" replays recent traffic.
+     * - In client mode: the frame is handed to the control listener.
+     */
+    private void handleControl(Socket socket, String line) {
+        if (isServer) {
+            // Anything but a name or a replay request: this client is not resuming
+            if (!held.isEmpty() && !line.startsWith(HELLO) && !line.startsWith(SINCE)) {
+                release(socket, List.of());
+            }
+            if (line.startsWith(HELLO)) {
+                scheduler.identify(socket, line.substring(HELLO.length()));
+            } else if (line.startsWith(SUBS)) {
+                Set<Integer> topics = new HashSet<>();
+                for (String t : line.substring(SUBS.length()).split(",")) {
+                    int topic = knownTopic(t);
+                    if (topic >= 0) {
+                        topics.add(topic);
+                    }
+                }
+                router.setTopics(socket, topics);
+            } else if (line.startsWith(SUB)) {
+                int topic = knownTopic(line.substring(SUB.length()));
+                if (topic >= 0) {
+                    router.subscribe(socket, topic);
+                }
+            } else if (line.startsWith(UNSUB)) {
+                int topic = knownTopic(line.substring(UNSUB.length()));
+                if (topic >= 0) {
+                    router.unsubscribe(socket, topic);
+                }
+            } else if (line.startsWith(TOPIC)) {
+                declareTopic(line.substring(TOPIC.length()));
+            } else if (line.startsWith(SEQUENCED)) {
+                sequenced.add(socket);
+            } else if (line.startsWith(SINCE)) {
+                sequenced.add(socket);
+                RecentMessages recent = recentMessages;
+                release(socket, recent == null ? List.of()
+                        : recent.since(Long.parseLong(line.substring(SINCE.length()))));
+            } else if (line.startsWith(SHARDS)) {
+                config.setShards(line.substring(SHARDS.length()));
+                Log.info("Shard map updated: " + config.getShards());
+                List<Socket> clients;
+                synchronized (clientSockets) {
+                    clients = new ArrayList<>(clientSockets);
+                }
+                for (Socket client : clients) {
+                    sendLine(client, line);
+                }
+            }
+        } else if (line.startsWith(TOPIC_ID)) {
+            int space = line.lastIndexOf(' ');
+            topicRegistry.put(line.substring(TOPIC_ID.length(), space), Integer.parseInt(line.substring(space + 1)));
+        } else {
+            Consumer<String> listener = controlListener;
+            if (listener != null) {
+                listener.accept(line);
+            }
+        }
+    }
+
+    /**
+     * Server mode: a topic id from a client's "#SUB"/"#SUBS", or -1 if it is
+     * not a number or not an id the registry has handed out. The routing
+     * arrays are sized by these ids, so a client cannot make them any bigger
+     * than the registry. In a sharded bus named ids are handed out by the
+     * first shard, so the other shards only hold them to MAX_TOPICS.
+     */
+    private int knownTopic(String text) {
+        if (text.isBlank()) {
+            return -1;
+        }
+        try {
+            int topic = Integer.parseInt(text.trim());
+            int limit = config.getShards().isEmpty() ? topicRegistry.size() : TopicRegistry.MAX_TOPICS;
+            if (topic >= 0 && topic < limit) {
+                return topic;
+            }
+        } catch (NumberFormatException e) {
+            // falls through to the warning
+        }
+        if (connectionErrors.tryAcquire()) {
+            Log.warn("Ignoring subscription to unknown topic: " + text.trim());
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the dense id for a named topic, declaring it if needed.
+     * Server mode assigns it directly; client mode asks the broker once and
+     * then answers from the local cache.
+     */
+    public int declareTopic(String name) {
+        if (name.isBlank() || name.contains(" ")) {
+            throw new IllegalArgumentException("Topic names cannot be blank or contain spaces: " + name);
+        }
+        if (isServer) {
+            boolean isNew = topicRegistry.idOf(name) < 0;
+            int id = topicRegistry.declare(name);
+            if (isNew) {
+                List<Socket> clients;
+                synchronized (clientSockets) {
+                    clients = new ArrayList<>(clientSockets);
+                }
+                for (Socket client : clients) {
+                    sendLine(client, TOPIC_ID + name + " " + id);
+                }
+            }
+            return id;
+        }
+        int id = topicRegistry.idOf(name);
+        if (id >= 0) {
+            return id;
+        }
+        sendControl(TOPIC + name);
+        return topicRegistry.awaitId(name, 2000);
+    }
+
+    /**
+     * Known topic names and ids.
+     */
+    public TopicRegistry getTopicRegistry() {
+        return topicRegistry;
+    }
+
+    /**
+     * Sets who receives control frames (client mode).
+     */
+    public void setControlListener(Consumer<String> listener) {
+        this.controlListener = listener;
+    }
+
+    /**
+     * Sends a control frame to the server (client mode).
+     */
+    public void sendControl(String line) {
+        if (!line.startsWith(CONTROL_PREFIX)) {
+            throw new IllegalArgumentException("Control frames start with " + CONTROL_PREFIX);
+        }
+        synchronized (sendLock) {
+            if (connected) {
+                out.println(line);
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already gone
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object writeLock(Socket socket) {
+        // A socket already cleaned up has no lock left; its writes fail anyway
+        return writeLocks.getOrDefault(socket, socket);
+    }
+
+    // Caller holds the socket's write lock
+    private void writeHeld(Socket socket, OutputStream out) throws IOException {
+        Hold hold = held.remove(socket);
+        if (hold != null) {
+            boolean stamped = sequenced.contains(socket);
+            for (Held frame : hold.frames()) {
+                out.write(stamped ? stamp(frame.frame(), frame.sequence(), null) : frame.frame().bytes());
+            }
+        }
+    }
+
+    // "#SEQ" line and frame in one array; stamped is the shared copy if the relay made one
+    private static byte[] stamp(WireFrame frame, long sequence, byte[] stamped) {
+        return stamped != null ? stamped : frame.prefixed((SEQ + sequence + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Server mode: writes a client's replay, then the live frames held back
+     * since it connected, and lets live traffic through from here on. The
+     * relay thread waits on the write lock meanwhile, so nothing newer gets
+     * in between.
+     */
+    private void release(Socket socket, List<RecentMessages.Entry> replay) {
+        boolean stamped = sequenced.contains(socket);
+        try {
+            synchronized (writeLock(socket)) {
+                OutputStream out = socket.getOutputStream();
+                for (RecentMessages.Entry missed : replay) {
+                    String line = (stamped ? SEQ + missed.sequence() + "\n" : "") + missed.line() + "\n";
+                    out.write(line.getBytes(StandardCharsets.UTF_8));
+                }
+                writeHeld(socket, out);
+            }
+        } catch (IOException e) {
+            if (connectionErrors.tryAcquire()) {
+                Log.warn("Connection error: " + e.getMessage());
+            }
+            cleanupSocket(socket);
+        }
+    }
+
+    private void sendLine(Socket socket, String line) {
+        try {
+            synchronized (writeLock(socket)) {
+                socket.getOutputStream().write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            if (connectionErrors.tryAcquire()) {
+                Log.warn("Connection error: " + e.getMessage());
+            }
+            cleanupSocket(socket);
+        }
+    }
+
+    /**
+     * Adds a received message to the local queue.
+     * When the queue is bounded and full, the oldest message is dropped.
+     */
+    private void enqueue(Message message) {
+        synchronized (queue) {
+            if (config.getMaxQueue() > 0 && queue.size() >= config.getMaxQueue()) {
+                queue.pollFirst();
+                droppedCount++;
+            }
+            queue.add(message);
+        }
+    }
+
+    /**
+     * Number of messages dropped because the local queue was full.
+     */
+    public long getDroppedCount() {
+        synchronized (queue) {
+            return droppedCount;
+        }
+    }
+
+    /**
+     * Number of stale messages discarded: in get(), plus at the server's
+     * dequeue when this is a server.
+     */
+    public long getExpiredCount() {
+        long expired;
+        synchronized (queue) {
+            expired = queue.expiredCount();
+        }
+        if (isServer) {
+            for (ClientStats stats : scheduler.stats()) {
+                expired += stats.expired();
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Number of queued messages currently held on disk rather than the heap.
+     */
+    public long getSpilledCount() {
+        synchronized (queue) {
+            return queue.spilledCount();
+        }
+    }
+
+    /**
+     * The host/port/limits this bus was created with.
+     */
+    public BusConfig getConfig() {
+        return config;
+    }
+
     /**
      * Publishes a message to the bus.
      * - In server mode: broadcast the message to all connected clients.
@@ -147,52 +777,101 @@ public class SoftwareBus {
             synchronized (clientSockets) {
                 for (Socket client : clientSockets) {
                     try {
-                        PrintWriter temp = new PrintWriter(client.getOutputStream(), true);
-                        temp.println(message.toString());
+                        synchronized (writeLock(client)) {
+                            client.getOutputStream().write((message + "\n").getBytes(StandardCharsets.UTF_8));
+                        }
                     } catch (IOException e) {
-                        System.err.println("Connection error: " + e.getMessage());
+                        if (connectionErrors.tryAcquire()) {
+                            Log.warn("Connection error: " + e.getMessage());
+                        }
                         cleanupSocket(client);
                     }
                 }
             }
         } else {
-            out.println(message.toString());
+            String line = message.toString();
+            synchronized (sendLock) {
+                if (!connected) {
+                    // Failing over: held until the standby accepts us
+                    pendingOut.add(line);
+                    return;
+                }
+                out.println(line);
+                if (out.checkError()) {
+                    pendingOut.add(line);
+                }
+            }
         }
     }
 
     /**
      * Registers a subscription to a given topic and subtopic.
+     * Topic ids run from 0 to TopicRegistry.MAX_TOPICS - 1.
      */
     public void subscribe(int topic, int subtopic) {
-        subscriptions.add(new Subscription(topic, subtopic));
+        if (topic < 0 || topic >= TopicRegistry.MAX_TOPICS) {
+            throw new IllegalArgumentException("No such topic id: " + topic);
+        }
+        synchronized (subscriptions) {
+            boolean firstOnTopic = !hasTopic(topic);
+            if (subscriptions.add(new Subscription(topic, subtopic))) {
+                subscriptionTable = subscriptionTable.with(topic, subtopic);
+            }
+            if (firstOnTopic && !isServer) {
+                sendControl(SUB + topic);
+            }
+        }
+    }
+
+    /**
+     * Removes a subscription added with subscribe().
+     */
+    public void unsubscribe(int topic, int subtopic) {
+        synchronized (subscriptions) {
+            if (subscriptions.remove(new Subscription(topic, subtopic))) {
+                subscriptionTable = subscriptionTable.without(topic, subtopic);
+                if (!hasTopic(topic) && !isServer) {
+                    sendControl(UNSUB + topic);
+                }
+            }
+        }
+    }
+
+    private boolean hasTopic(int topic) {
+        for (Subscription s : subscriptions) {
+            if (s.topic() == topic) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Topics this client subscribes to, as sent in "#SUBS".
+     */
+    private String subscribedTopics() {
+        Set<Integer> topics = new TreeSet<>();
+        synchronized (subscriptions) {
+            for (Subscription s : subscriptions) {
+                topics.add(s.topic());
+            }
+        }
+        StringJoiner joined = new StringJoiner(",");
+        topics.forEach(t -> joined.add(String.valueOf(t)));
+        return joined.toString();
     }
 
     /**
      * Retrieves and removes the first message in the queue matching the given topic/subtopic.
      * If subtopic = 0, matches all subtopics.
+     * Messages past their deadline are discarded on the way and never returned.
      * Returns null if no matching message is found.
      */
     public Message get(int topic, int subtopic) {
+        long now = System.currentTimeMillis();
         synchronized (queue) {
-            if (isServer) {
-                if (queue.isEmpty()) {
-                    return null;
-                }
-                Message m = queue.getFirst();
-                queue.removeFirst();
-                return m;
-            }
-
-            Iterator<Message> queue_iter = queue.iterator();
-            while (queue_iter.hasNext()) {
-                Message m = queue_iter.next();
-                System.out.println(m.toString());
-                if (m.getTopic() == topic && (subtopic == 0 || m.getSubTopic() == subtopic)) {
-                    queue_iter.remove();
-                    return m;
-                }
-            }
-            return null;
+            // The server hands out its queue in arrival order regardless of topic
+            return queue.take(topic, isServer ? 0 : subtopic, isServer, now);
         }
     }
 
@@ -201,10 +880,17 @@ public class SoftwareBus {
             synchronized (clientSockets) {
                 clientSockets.remove(socket);
             }
+            if (scheduler != null) {
+                scheduler.unregister(socket);
+            }
+            router.remove(socket);
+            sequenced.remove(socket);
+            held.remove(socket);
+            writeLocks.remove(socket);
             socket.close();
-            System.out.println("Closed socket: " + socket);
+            Log.info("Closed socket: " + socket);
         } catch (IOException e) {
-            System.err.println("Error closing socket: " + e.getMessage());
+            Log.warn("Error closing socket: " + e.getMessage());
         }
     }
 
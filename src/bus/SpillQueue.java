@@ -0,0 +1,282 @@
+package bus;
+
+import Message.Message;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Message queue that keeps its head in memory and spills the tail to
+ * memory-mapped segment files once the in-memory byte budget is used up.
+ * Spilled messages are read back transparently and in order, so a burst
+ * bounds the heap without dropping anything.
+ *
+ * Everything in memory is older than everything on disk; while anything is
+ * spilled, new messages go to disk and are moved back as the head drains.
+ * Not thread safe: SoftwareBus guards it with its queue lock.
+ */
+class SpillQueue {
+
+    private static final Log.RateLimit spillErrors = new Log.RateLimit(1);
+
+    // Rough heap cost of one queued Message (object + deque slot)
+    static final int MESSAGE_BYTES = 64;
+
+    // Spilled record: topic, subtopic, body, removed flag, deadline
+    private static final int RECORD_BYTES = 24;
+    private static final int SEGMENT_RECORDS = 1 << 16;
+
+    private static final class Segment {
+        final long id;
+        final Path file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int readIndex;   // first record that may still be live
+        int writeIndex;  // next free record
+        int live;
+
+        Segment(long id, Path file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) SEGMENT_RECORDS * RECORD_BYTES);
+        }
+
+        boolean isRemoved(int index) {
+            return buffer.getInt(index * RECORD_BYTES + 12) != 0;
+        }
+
+        Message read(int index) {
+            int at = index * RECORD_BYTES;
+            return new Message(buffer.getInt(at), buffer.getInt(at + 4), buffer.getInt(at + 8), buffer.getLong(at + 16));
+        }
+
+        void remove(int index) {
+            buffer.putInt(index * RECORD_BYTES + 12, 1);
+            live--;
+            while (readIndex < writeIndex && isRemoved(readIndex)) {
+                readIndex++;
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Log.warn("Could not close spill segment " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private final ArrayDeque<Message> memory = new ArrayDeque<>();
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final int memoryLimit;
+    private final Path spillDir;
+    private long spilled;
+    private long expired;
+    private long totalSpilled;
+    private long nextSegmentId;
+
+    // Where the last spill scan for a filter stopped: {segment id, record index}.
+    // Records before it held no match and records never change, so the next
+    // scan for the same filter can start there instead of rescanning the tombstones.
+    private final Map<Long, long[]> scanCursors = new HashMap<>();
+
+    /**
+     * @param memoryBudgetBytes heap allowed for queued messages (0 = never spill)
+     * @param spillDir          where segment files go
+     */
+    SpillQueue(long memoryBudgetBytes, Path spillDir) {
+        this.memoryLimit = memoryBudgetBytes <= 0 ? Integer.MAX_VALUE
+                : (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudgetBytes / MESSAGE_BYTES));
+        this.spillDir = spillDir;
+    }
+
+    void add(Message message) {
+        if (spilled == 0 && memory.size() < memoryLimit) {
+            memory.addLast(message);
+            return;
+        }
+        try {
+            spill(message);
+        } catch (IOException e) {
+            // Disk trouble: keep the message on the heap rather than lose it
+            if (spillErrors.tryAcquire()) {
+                Log.error("Spill failed, keeping message in memory: " + e);
+            }
+            memory.addLast(message);
+        }
+    }
+
+    private void spill(Message message) throws IOException {
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.writeIndex == SEGMENT_RECORDS) {
+            tail = new Segment(nextSegmentId++, Files.createTempFile(spillDir, "bus-spill-", ".seg"));
+            segments.addLast(tail);
+        }
+        int at = tail.writeIndex * RECORD_BYTES;
+        tail.buffer.putInt(at, message.getTopic());
+        tail.buffer.putInt(at + 4, message.getSubTopic());
+        tail.buffer.putInt(at + 8, message.getBody());
+        tail.buffer.putInt(at + 12, 0);
+        tail.buffer.putLong(at + 16, message.getDeadline());
+        tail.writeIndex++;
+        tail.live++;
+        spilled++;
+        totalSpilled++;
+    }
+
+    /**
+     * Removes and returns the oldest message, or null when empty.
+     */
+    Message pollFirst() {
+        Message m = memory.pollFirst();
+        if (m == null && spilled > 0) {
+            refill();
+            m = memory.pollFirst();
+        }
+        refill();
+        return m;
+    }
+
+    /**
+     * Removes and returns the oldest live message on the topic (any topic if
+     * anyTopic) and subtopic (0 = any). Expired messages passed on the way are
+     * discarded and counted.
+     */
+    Message take(int topic, int subtopic, boolean anyTopic, long now) {
+        Iterator<Message> it = memory.iterator();
+        while (it.hasNext()) {
+            Message m = it.next();
+            if (m.isExpired(now)) {
+                it.remove();
+                expired++;
+                continue;
+            }
+            if (matches(m, topic, subtopic, anyTopic)) {
+                it.remove();
+                refill();
+                return m;
+            }
+        }
+        if (spilled == 0) {
+            return null;
+        }
+        long key = anyTopic ? -1L - subtopic : ((long) topic << 32) | (subtopic & 0xFFFFFFFFL);
+        long[] cursor = scanCursors.get(key);
+        for (Segment segment : segments) {
+            int start = segment.readIndex;
+            if (cursor != null) {
+                if (segment.id < cursor[0]) {
+                    continue;
+                }
+                if (segment.id == cursor[0]) {
+                    start = Math.max(start, (int) cursor[1]);
+                }
+            }
+            for (int i = start; i < segment.writeIndex; i++) {
+                if (segment.isRemoved(i)) {
+                    continue;
+                }
+                Message m = segment.read(i);
+                boolean stale = m.isExpired(now);
+                if (stale || matches(m, topic, subtopic, anyTopic)) {
+                    segment.remove(i);
+                    spilled--;
+                    if (stale) {
+                        expired++;
+                        continue;
+                    }
+                    saveCursor(key, segment.id, i + 1);
+                    dropFinishedSegments();
+                    refill();
+                    return m;
+                }
+            }
+        }
+        Segment tail = segments.peekLast();
+        saveCursor(key, tail.id, tail.writeIndex);
+        dropFinishedSegments();
+        refill();
+        return null;
+    }
+
+    private void saveCursor(long key, long segmentId, int index) {
+        if (scanCursors.size() > 1024) {
+            scanCursors.clear();
+        }
+        scanCursors.put(key, new long[]{segmentId, index});
+    }
+
+    private static boolean matches(Message m, int topic, int subtopic, boolean anyTopic) {
+        return (anyTopic || m.getTopic() == topic) && (subtopic == 0 || m.getSubTopic() == subtopic);
+    }
+
+    /**
+     * Moves the oldest spilled messages back into memory while there is room.
+     */
+    private void refill() {
+        while (spilled > 0 && memory.size() < memoryLimit) {
+            Segment head = segments.peekFirst();
+            if (head.readIndex == head.writeIndex) {
+                dropFinishedSegments();
+                continue;
+            }
+            memory.addLast(head.read(head.readIndex));
+            head.remove(head.readIndex);
+            spilled--;
+        }
+        dropFinishedSegments();
+    }
+
+    /**
+     * Deletes segments whose records have all been taken (the tail segment
+     * stays while it still has room to write).
+     */
+    private void dropFinishedSegments() {
+        while (!segments.isEmpty()) {
+            Segment head = segments.peekFirst();
+            boolean writable = head == segments.peekLast() && head.writeIndex < SEGMENT_RECORDS;
+            if (head.live > 0 || (writable && spilled > 0)) {
+                return;
+            }
+            segments.pollFirst();
+            head.close();
+        }
+    }
+
+    int size() {
+        return (int) Math.min(Integer.MAX_VALUE, memory.size() + spilled);
+    }
+
+    boolean isEmpty() {
+        return memory.isEmpty() && spilled == 0;
+    }
+
+    /**
+     * Messages currently on disk.
+     */
+    long spilledCount() {
+        return spilled;
+    }
+
+    /**
+     * Messages ever written to disk.
+     */
+    long totalSpilled() {
+        return totalSpilled;
+    }
+
+    long expiredCount() {
+        return expired;
+    }
+}
@@ -0,0 +1,167 @@
+package bus;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Hot-standby bus broker.
+ * Connects to the primary like a client, mirrors its shard map and keeps the
+ * most recent traffic. When the primary's connection drops or its heartbeats
+ * stop, the standby starts serving on its own port; clients configured with
+ * --failover / bus.failover reconnect to it and get the missed tail replayed.
+ * Each mirrored line is kept under the primary's relay sequence number
+ * ("#SEQ"); a client asks for everything after the last number it got
+ * ("#SINCE"), so no clocks are compared.
+ *
+ * Topic ids the primary assigns ("#TOPICID") are mirrored too, so after a
+ * takeover names keep the ids clients have cached. Subscriptions live on the
+ * clients in this bus, so there is nothing else on the primary to copy.
+ *
+ * Usage: java bus.StandbyBroker --primary=localhost:9999 --port=10000 --heartbeat=100
+ */
+public class StandbyBroker {
+
+    private final BusConfig config;
+    private final BusConfig primary;
+    private final RecentMessages recent;
+    // Ids the primary handed out; the standby serves with these after taking over
+    private final TopicRegistry topics = new TopicRegistry();
+
+    private volatile Socket primarySocket;
+    private volatile long lastHeardMillis;
+    private volatile SoftwareBus server;
+    private volatile long takeoverMillis = -1;
+
+    /**
+     * @param config         where the standby serves after taking over; getPrimary() names the primary
+     * @param recentCapacity how many recent messages to keep for replay
+     */
+    public StandbyBroker(BusConfig config, int recentCapacity) {
+        if (config.getPrimary().isEmpty()) {
+            throw new IllegalArgumentException("A standby needs --primary=host:port");
+        }
+        this.config = config;
+        this.primary = BusConfig.forShard(config.getPrimary());
+        this.recent = new RecentMessages(recentCapacity);
+    }
+
+    /**
+     * Starts mirroring the primary (and watching its heartbeats).
+     */
+    public void start() {
+        Thread mirrorThread = new Thread(this::mirror, "standby-mirror");
+        mirrorThread.start();
+        if (config.getHeartbeatMillis() > 0) {
+            Thread watchdogThread = new Thread(this::watchdog, "standby-watchdog");
+            watchdogThread.setDaemon(true);
+            watchdogThread.start();
+        }
+    }
+
+    /**
+     * Reads everything the primary relays until the connection ends, then takes over.
+     */
+    private void mirror() {
+        Socket socket = connectToPrimary();
+        try {
+            new PrintWriter(socket.getOutputStream(), true).println(SoftwareBus.SEQUENCED);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            // Lines the primary sends without a stamp of their own keep the last one
+            long sequence = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lastHeardMillis = System.currentTimeMillis();
+                if (line.startsWith(SoftwareBus.SEQ)) {
+                    sequence = Long.parseLong(line.substring(SoftwareBus.SEQ.length()));
+                } else if (line.startsWith(SoftwareBus.SHARDS)) {
+                    config.setShards(line.substring(SoftwareBus.SHARDS.length()));
+                } else if (line.startsWith(SoftwareBus.TOPIC_ID)) {
+                    int space = line.lastIndexOf(' ');
+                    topics.put(line.substring(SoftwareBus.TOPIC_ID.length(), space),
+                            Integer.parseInt(line.substring(space + 1)));
+                } else if (!line.startsWith(SoftwareBus.CONTROL_PREFIX)) {
+                    recent.add(sequence, line);
+                }
+            }
+        } catch (IOException e) {
+            Log.warn("Standby lost primary: " + e.getMessage());
+        }
+        takeOver();
+    }
+
+    private Socket connectToPrimary() {
+        while (true) {
+            try {
+                Socket socket = new Socket();
+                socket.connect(new InetSocketAddress(primary.getHost(), primary.getPort()), 1000);
+                primarySocket = socket;
+                lastHeardMillis = System.currentTimeMillis();
+                Log.info("Standby mirroring primary " + primary);
+                return socket;
+            } catch (IOException e) {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the mirror connection if the primary misses three heartbeats.
+     */
+    private void watchdog() {
+        long timeout = 3L * config.getHeartbeatMillis();
+        while (server == null) {
+            try {
+                Thread.sleep(config.getHeartbeatMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+            Socket socket = primarySocket;
+            if (socket != null && System.currentTimeMillis() - lastHeardMillis > timeout) {
+                Log.warn("Primary missed heartbeats for " + timeout + " ms");
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // mirror thread takes over either way
+                }
+                return;
+            }
+        }
+    }
+
+    private synchronized void takeOver() {
+        if (server != null) {
+            return;
+        }
+        long start = System.nanoTime();
+        server = BusBroker.start(config, topics, recent);
+        takeoverMillis = (System.nanoTime() - start) / 1_000_000;
+        Log.warn("Standby took over on " + config + " in " + takeoverMillis + " ms");
+    }
+
+    /**
+     * True once the standby is serving clients.
+     */
+    public boolean isActive() {
+        return server != null;
+    }
+
+    /**
+     * Time from noticing the primary was gone to serving, or -1 if still standing by.
+     */
+    public long getTakeoverMillis() {
+        return takeoverMillis;
+    }
+
+    public static void main(String[] args) {
+        BusConfig config = BusConfig.fromArgs(args);
+        new StandbyBroker(config, 1024).start();
+    }
+}
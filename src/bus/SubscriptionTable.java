@@ -0,0 +1,88 @@
+package bus;
+
+import java.util.Arrays;
+
+/**
+ * Immutable topic -> subtopic subscription lookup, indexed by topic id.
+ * Rebuilt on the rare subscribe/unsubscribe so the per-message check is two
+ * array reads instead of walking a set of records.
+ */
+final class SubscriptionTable {
+
+    static final SubscriptionTable EMPTY = new SubscriptionTable(new boolean[0], new int[0][]);
+
+    // Subscribed to every subtopic of the topic
+    private final boolean[] allSubtopics;
+    // Specific subtopics per topic (null = none)
+    private final int[][] subtopics;
+
+    private SubscriptionTable(boolean[] allSubtopics, int[][] subtopics) {
+        this.allSubtopics = allSubtopics;
+        this.subtopics = subtopics;
+    }
+
+    boolean matches(int topic, int subtopic) {
+        if (topic < 0 || topic >= allSubtopics.length) {
+            return false;
+        }
+        if (allSubtopics[topic]) {
+            return true;
+        }
+        int[] subs = subtopics[topic];
+        if (subs != null) {
+            for (int s : subs) {
+                if (s == subtopic) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copy with one subscription added (subtopic 0 = all subtopics).
+     */
+    SubscriptionTable with(int topic, int subtopic) {
+        int size = Math.max(allSubtopics.length, topic + 1);
+        boolean[] all = Arrays.copyOf(allSubtopics, size);
+        int[][] subs = Arrays.copyOf(subtopics, size);
+        if (subtopic == 0) {
+            all[topic] = true;
+        } else if (!contains(subs[topic], subtopic)) {
+            int[] old = subs[topic] == null ? new int[0] : subs[topic];
+            int[] grown = Arrays.copyOf(old, old.length + 1);
+            grown[old.length] = subtopic;
+            subs[topic] = grown;
+        }
+        return new SubscriptionTable(all, subs);
+    }
+
+    /**
+     * Copy with one subscription removed.
+     */
+    SubscriptionTable without(int topic, int subtopic) {
+        if (topic < 0 || topic >= allSubtopics.length) {
+            return this;
+        }
+        boolean[] all = allSubtopics.clone();
+        int[][] subs = subtopics.clone();
+        if (subtopic == 0) {
+            all[topic] = false;
+        } else if (subs[topic] != null) {
+            subs[topic] = Arrays.stream(subs[topic]).filter(s -> s != subtopic).toArray();
+        }
+        return new SubscriptionTable(all, subs);
+    }
+
+    private static boolean contains(int[] values, int value) {
+        if (values == null) {
+            return false;
+        }
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,115 @@
+package bus;
+
+import Message.Channels;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Named topics with dense integer ids.
+ * The broker owns the authoritative registry and hands out the next free id
+ * when a client declares a new name; clients keep a cached copy so that names
+ * are only looked up once and every message is routed by its integer topic.
+ *
+ * Ids 0..MAX_CARS are the fixed channels (SYSTEM, E1..E64); names declared
+ * at run time start at Channels.FIRST_NAMED. Ids stay below MAX_TOPICS,
+ * which bounds every table indexed by topic.
+ */
+public class TopicRegistry {
+
+    public static final int MAX_TOPICS = 1 << 16;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    public TopicRegistry() {
+        put("SYSTEM", Channels.SYSTEM);
+        for (int id = 1; id <= Channels.MAX_CARS; id++) {
+            put("E" + id, Channels.car(id));
+        }
+    }
+
+    /**
+     * Broker side: returns the id for a name, assigning the next one if new.
+     */
+    public synchronized int declare(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        int next = names.size();
+        if (next >= MAX_TOPICS) {
+            throw new IllegalStateException("No topic ids left for " + name);
+        }
+        put(name, next);
+        return next;
+    }
+
+    /**
+     * Client side: records an id the broker assigned and wakes up anyone
+     * waiting for it.
+     */
+    public synchronized void put(String name, int id) {
+        if (id < 0 || id >= MAX_TOPICS) {
+            throw new IllegalArgumentException("Topic id out of range: " + id);
+        }
+        ids.put(name, id);
+        while (names.size() <= id) {
+            names.add(null);
+        }
+        names.set(id, name);
+        notifyAll();
+    }
+
+    /**
+     * Cached id for a name, or -1 if not known yet.
+     */
+    public synchronized int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Waits until the id for a name is known.
+     */
+    public synchronized int awaitId(String name, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Integer id;
+        while ((id = ids.get(name)) == null) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) {
+                throw new IllegalStateException("No id assigned for topic " + name);
+            }
+            try {
+                wait(left);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for topic " + name);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Name registered for an id, or null.
+     */
+    public synchronized String nameOf(int id) {
+        return id >= 0 && id < names.size() ? names.get(id) : null;
+    }
+
+    /**
+     * Number of ids handed out so far (ids are 0..size()-1).
+     */
+    public synchronized int size() {
+        return names.size();
+    }
+
+    /**
+     * Snapshot of all names, index = id.
+     */
+    public synchronized List<String> names() {
+        return new ArrayList<>(names);
+    }
+}
@@ -0,0 +1,128 @@
+package bus;
+
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Server-side fan-out table, indexed by topic id.
+ * Clients that send "#SUBS" only get the topics they subscribed to; anything
+ * that never does (a standby mirroring the primary, a traffic tap) gets everything.
+ *
+ * The routes are rebuilt on connect/disconnect/subscribe and published as
+ * immutable arrays, so the relay path reads them without taking a lock.
+ */
+final class TopicRouter {
+
+    /**
+     * One published version of the table. The relay path takes a single
+     * Routes per frame, so a client that moves between everything() and a
+     * topic mid-frame is not sent it twice.
+     */
+    record Routes(Socket[] everything, Socket[][] byTopic) {
+
+        /**
+         * Clients subscribed to this topic (not including everything()).
+         */
+        Socket[] subscribers(int topic) {
+            return topic >= 0 && topic < byTopic.length && byTopic[topic] != null ? byTopic[topic] : NONE;
+        }
+    }
+
+    private static final Socket[] NONE = new Socket[0];
+
+    private final Set<Socket> unfiltered = new HashSet<>();
+    private final Map<Socket, Set<Integer>> filtered = new HashMap<>();
+    private volatile Routes routes = new Routes(NONE, new Socket[0][]);
+
+    synchronized void add(Socket socket) {
+        unfiltered.add(socket);
+        rebuild();
+    }
+
+    synchronized void remove(Socket socket) {
+        unfiltered.remove(socket);
+        filtered.remove(socket);
+        rebuild();
+    }
+
+    /**
+     * Replaces a client's whole topic set and marks it as filtered.
+     */
+    synchronized void setTopics(Socket socket, Set<Integer> topics) {
+        if (!unfiltered.remove(socket) && !filtered.containsKey(socket)) {
+            return; // already disconnected
+        }
+        filtered.put(socket, new HashSet<>(topics));
+        rebuild();
+    }
+
+    synchronized void subscribe(Socket socket, int topic) {
+        Set<Integer> topics = filtered.get(socket);
+        if (topics != null && topics.add(topic)) {
+            rebuild();
+        }
+    }
+
+    synchronized void unsubscribe(Socket socket, int topic) {
+        Set<Integer> topics = filtered.get(socket);
+        if (topics != null && topics.remove(topic)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Clients that take every topic.
+     */
+    Socket[] everything() {
+        return routes.everything();
+    }
+
+    /**
+     * Clients subscribed to this topic (not including everything()).
+     */
+    Socket[] subscribers(int topic) {
+        return routes.subscribers(topic);
+    }
+
+    /**
+     * The current table, for reading everything() and subscribers() consistently.
+     */
+    Routes routes() {
+        return routes;
+    }
+
+    private void rebuild() {
+        int size = 0;
+        for (Set<Integer> topics : filtered.values()) {
+            for (int t : topics) {
+                size = Math.max(size, t + 1);
+            }
+        }
+        List<List<Socket>> lists = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            lists.add(null);
+        }
+        filtered.forEach((socket, topics) -> {
+            for (int t : topics) {
+                if (t < 0) {
+                    continue;
+                }
+                if (lists.get(t) == null) {
+                    lists.set(t, new ArrayList<>());
+                }
+                lists.get(t).add(socket);
+            }
+        });
+        Socket[][] byTopic = new Socket[size][];
+        for (int i = 0; i < size; i++) {
+            byTopic[i] = lists.get(i) == null ? null : lists.get(i).toArray(NONE);
+        }
+        routes = new Routes(unfiltered.toArray(NONE), byTopic);
+    }
+
+}
@@ -0,0 +1,141 @@
+package bus;
+
+import Message.Message;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One message line exactly as it came off the wire ("topic-subtopic-body[-deadline]\n").
+ * Only the routing header (topic, subtopic, deadline) is read; the server
+ * forwards the same byte array to every destination and only builds a
+ * Message when it keeps the frame for itself.
+ */
+final class WireFrame {
+
+    // The whole line including the trailing '\n'
+    private final byte[] bytes;
+    private final int topic;
+    private final int subtopic;
+    private final long deadline;
+
+    private WireFrame(byte[] bytes, int topic, int subtopic, long deadline) {
+        this.bytes = bytes;
+        this.topic = topic;
+        this.subtopic = subtopic;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Reads the header of a line (which must end in '\n'). The body is
+     * skipped, not decoded.
+     */
+    static WireFrame parse(byte[] line) {
+        int[] pos = {0};
+        int topic = (int) readNumber(line, pos);
+        int subtopic = (int) readNumber(line, pos);
+        // body: skip the sign and digits
+        int i = pos[0];
+        if (i < line.length && line[i] == '-') {
+            i++;
+        }
+        while (i < line.length && line[i] >= '0' && line[i] <= '9') {
+            i++;
+        }
+        if (i == pos[0] || line[i - 1] == '-') {
+            throw new NumberFormatException("Expected <topic>-<subtopic>-<body>: " + text(line));
+        }
+        long deadline = 0;
+        if (i < line.length && line[i] == '-') {
+            pos[0] = i + 1;
+            deadline = readNumber(line, pos);
+        }
+        return new WireFrame(line, topic, subtopic, deadline);
+    }
+
+    /**
+     * Parses the digits at pos[0] (with an optional '-' sign) and moves pos
+     * past the field's trailing '-' separator, if any.
+     */
+    private static long readNumber(byte[] line, int[] pos) {
+        int i = pos[0];
+        boolean negative = i < line.length && line[i] == '-';
+        if (negative) {
+            i++;
+        }
+        int start = i;
+        long value = 0;
+        while (i < line.length && line[i] >= '0' && line[i] <= '9') {
+            value = value * 10 + (line[i] - '0');
+            i++;
+        }
+        if (i == start) {
+            throw new NumberFormatException("Expected <topic>-<subtopic>-<body>: " + text(line));
+        }
+        pos[0] = i < line.length && line[i] == '-' ? i + 1 : i;
+        return negative ? -value : value;
+    }
+
+    int getTopic() {
+        return topic;
+    }
+
+    int getSubTopic() {
+        return subtopic;
+    }
+
+    long getDeadline() {
+        return deadline;
+    }
+
+    boolean isExpired(long now) {
+        return deadline != 0 && now > deadline;
+    }
+
+    /**
+     * Bytes on the wire, newline included.
+     */
+    int length() {
+        return bytes.length;
+    }
+
+    /**
+     * The frame with a control line in front of it, as one array so both go
+     * out in a single write.
+     */
+    byte[] prefixed(byte[] line) {
+        byte[] both = new byte[line.length + bytes.length];
+        System.arraycopy(line, 0, both, 0, line.length);
+        System.arraycopy(bytes, 0, both, line.length, bytes.length);
+        return both;
+    }
+
+    /**
+     * The frame as received (not a copy); the same array goes to every destination.
+     */
+    byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * Full decode, for when the server consumes the message itself.
+     */
+    Message decode() {
+        return Message.parseStringToMsg(text(bytes));
+    }
+
+    @Override
+    public String toString() {
+        return text(bytes);
+    }
+
+    /**
+     * The line without its newline.
+     */
+    static String text(byte[] line) {
+        int end = line.length;
+        if (end > 0 && line[end - 1] == '\n') {
+            end--;
+        }
+        return new String(line, 0, end, StandardCharsets.US_ASCII);
+    }
+}
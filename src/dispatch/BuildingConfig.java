@@ -0,0 +1,57 @@
+package dispatch;
+
+import Message.Channels;
+import Message.Commands;
+
+/**
+ * Size of the building: how many cars and floors.
+ * Defaults match the original command center (4 cars, 10 floors).
+ * Read from -Dbuilding.cars and -Dbuilding.floors; every part that keeps
+ * per-car or per-floor state sizes it from here.
+ */
+public class BuildingConfig {
+
+    private int cars = 4;
+    private int floors = 10;
+
+    public BuildingConfig() {
+    }
+
+    /**
+     * Reads the building.* system properties (building.cars, building.floors).
+     */
+    public static BuildingConfig fromSystemProperties() {
+        return new BuildingConfig()
+                .setCars(Integer.getInteger("building.cars", 4))
+                .setFloors(Integer.getInteger("building.floors", 10));
+    }
+
+    public int getCars() {
+        return cars;
+    }
+
+    public BuildingConfig setCars(int cars) {
+        if (cars < 1 || cars > Channels.MAX_CARS) {
+            throw new IllegalArgumentException("Cars must be 1.." + Channels.MAX_CARS + ": " + cars);
+        }
+        this.cars = cars;
+        return this;
+    }
+
+    public int getFloors() {
+        return floors;
+    }
+
+    public BuildingConfig setFloors(int floors) {
+        if (floors < 2 || floors > Commands.MAX_FLOOR) {
+            throw new IllegalArgumentException("Floors must be 2.." + Commands.MAX_FLOOR + ": " + floors);
+        }
+        this.floors = floors;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return cars + " cars, " + floors + " floors";
+    }
+}
@@ -0,0 +1,40 @@
+package dispatch;
+
+/**
+ * What the dispatcher needs to know about, and ask of, one car.
+ * Implemented by the GUI's ElevatorPanel; kept free of JavaFX so dispatch
+ * can also run headless.
+ */
+public interface CarView {
+
+    /**
+     * Floor the car is at, or last passed while moving.
+     */
+    int getCurrentFloor();
+
+    /**
+     * Direction the car is travelling in (IDLE when it has nothing to do).
+     */
+    Direction getTravelDirection();
+
+    /**
+     * True if the car may take hall calls (enabled, not in FIRE, system running).
+     */
+    boolean isAvailable();
+
+    /**
+     * Copies the floors the car will still stop at into the array and
+     * returns how many there are. The array is sized for the building.
+     */
+    int getStops(int[] into);
+
+    /**
+     * Adds a stop for an assigned hall call going in the given direction.
+     */
+    void addStop(int floor, Direction direction);
+
+    /**
+     * Drops a hall-call stop that was reassigned to another car or served by one.
+     */
+    void removeStop(int floor, Direction direction);
+}
@@ -0,0 +1,38 @@
+package dispatch;
+
+/**
+ * Travel direction of a car or of a hall call.
+ * code() matches the direction field of Commands.statusArg (0=IDLE, 1=UP, 2=DOWN).
+ */
+public enum Direction {
+    UP(1), DOWN(2), IDLE(0);
+
+    private final int code;
+
+    Direction(int code) {
+        this.code = code;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public static Direction fromCode(int code) {
+        return switch (code) {
+            case 1 -> UP;
+            case 2 -> DOWN;
+            default -> IDLE;
+        };
+    }
+
+    /**
+     * Direction needed to get from one floor to another.
+     */
+    public static Direction between(int from, int to) {
+        return to > from ? UP : to < from ? DOWN : IDLE;
+    }
+
+    public Direction opposite() {
+        return this == UP ? DOWN : this == DOWN ? UP : IDLE;
+    }
+}
@@ -0,0 +1,33 @@
+package dispatch;
+
+/**
+ * Picks which car serves a hall call.
+ */
+public interface DispatchPolicy {
+
+    /**
+     * Index of the car that should serve the call, or -1 if no car is available.
+     */
+    int choose(CarView[] cars, int floor, Direction direction);
+
+    /**
+     * Estimated cost of a car serving the call. The dispatcher moves an
+     * assignment when another car is cheaper by a clear margin; policies that
+     * never move calls leave this at 0.
+     */
+    default long cost(CarView car, int floor, Direction direction) {
+        return 0;
+    }
+
+    /**
+     * Policy by name: "eta" (default), "round-robin" or "fixed".
+     */
+    static DispatchPolicy named(String name, int floors) {
+        return switch (name) {
+            case "round-robin" -> new RoundRobinPolicy();
+            case "fixed" -> new FixedPolicy(floors);
+            case "eta", "" -> new EtaPolicy(floors);
+            default -> throw new IllegalArgumentException("Unknown dispatch policy: " + name);
+        };
+    }
+}
@@ -0,0 +1,172 @@
+package dispatch;
+
+import java.util.Arrays;
+
+/**
+ * Group dispatcher for CENTRALIZED mode.
+ * Takes hall calls (floor + direction), lets the policy pick a car and adds
+ * the stop to it. Assignments are looked at again whenever something changes
+ * (a new call, a car arriving or going out of service): calls waiting for a
+ * car get one, calls on a car that dropped out move, and a call moves to
+ * another car when that one would now get there clearly sooner.
+ */
+public class Dispatcher {
+
+    // A call only moves if the other car is at least this much sooner, so
+    // calls don't flip back and forth between two cars with similar estimates
+    private static final long REASSIGN_MARGIN_MILLIS = 2000;
+
+    private static final int NO_CALL = -1;
+    // Call registered but no car could take it yet
+    private static final int WAITING = -2;
+
+    private final CarView[] cars;
+    private final int floors;
+    private final DispatchPolicy policy;
+
+    // Car index serving each call, indexed by floor: [0] up calls, [1] down calls
+    private final int[][] assigned;
+
+    public Dispatcher(CarView[] cars, int floors, DispatchPolicy policy) {
+        this.cars = cars;
+        this.floors = floors;
+        this.policy = policy;
+        this.assigned = new int[2][floors + 1];
+        Arrays.fill(assigned[0], NO_CALL);
+        Arrays.fill(assigned[1], NO_CALL);
+    }
+
+    /**
+     * Registers a hall call and returns the index of the car assigned to it,
+     * or -1 if no car is available yet (it is assigned later by reevaluate()).
+     * Pressing a call that is already pending changes nothing.
+     */
+    public synchronized int hallCall(int floor, Direction direction) {
+        if (floor < 1 || floor > floors) {
+            throw new IllegalArgumentException("No floor " + floor);
+        }
+        if (direction == Direction.IDLE) {
+            throw new IllegalArgumentException("Hall calls go UP or DOWN");
+        }
+        int[] calls = assigned[index(direction)];
+        if (calls[floor] == NO_CALL) {
+            calls[floor] = WAITING;
+            reevaluate();
+        }
+        return Math.max(-1, calls[floor]);
+    }
+
+    /**
+     * A car picked up a hall call. Whichever car the call was assigned to
+     * drops the stop; it is the serving car's own if it was assigned there.
+     */
+    public synchronized void callServed(int car, int floor, Direction direction) {
+        if (floor < 1 || floor > floors || direction == Direction.IDLE) {
+            return;
+        }
+        int[] calls = assigned[index(direction)];
+        int old = calls[floor];
+        calls[floor] = NO_CALL;
+        if (old >= 0 && old != car) {
+            cars[old].removeStop(floor, direction);
+        }
+    }
+
+    /**
+     * Drops one pending call; the car it was assigned to loses the stop.
+     */
+    public synchronized void cancel(int floor, Direction direction) {
+        if (floor < 1 || floor > floors || direction == Direction.IDLE) {
+            return;
+        }
+        moveCall(direction, floor, NO_CALL);
+    }
+
+    /**
+     * Drops every pending call (FIRE recall).
+     */
+    public synchronized void cancelAll() {
+        for (int d = 0; d < 2; d++) {
+            Direction direction = d == 0 ? Direction.UP : Direction.DOWN;
+            for (int floor = 1; floor <= floors; floor++) {
+                int old = assigned[d][floor];
+                assigned[d][floor] = NO_CALL;
+                if (old >= 0) {
+                    cars[old].removeStop(floor, direction);
+                }
+            }
+        }
+    }
+
+    /**
+     * Goes over every pending call and assigns, moves or keeps it.
+     */
+    public synchronized void reevaluate() {
+        for (int d = 0; d < 2; d++) {
+            Direction direction = d == 0 ? Direction.UP : Direction.DOWN;
+            int[] calls = assigned[d];
+            for (int floor = 1; floor <= floors; floor++) {
+                int current = calls[floor];
+                if (current == NO_CALL) {
+                    continue;
+                }
+                if (current == WAITING || !cars[current].isAvailable()) {
+                    int best = policy.choose(cars, floor, direction);
+                    moveCall(direction, floor, best < 0 ? WAITING : best);
+                    continue;
+                }
+                int best = policy.choose(cars, floor, direction);
+                if (best >= 0 && best != current) {
+                    long now = policy.cost(cars[current], floor, direction);
+                    long better = policy.cost(cars[best], floor, direction);
+                    if (better + REASSIGN_MARGIN_MILLIS < now) {
+                        moveCall(direction, floor, best);
+                    }
+                }
+            }
+        }
+    }
+
+    private void moveCall(Direction direction, int floor, int car) {
+        int[] calls = assigned[index(direction)];
+        int old = calls[floor];
+        if (old == car) {
+            return;
+        }
+        calls[floor] = car;
+        if (old >= 0) {
+            cars[old].removeStop(floor, direction);
+        }
+        if (car >= 0) {
+            cars[car].addStop(floor, direction);
+        }
+    }
+
+    /**
+     * Car index serving a call, -1 if there is no such call or it is still waiting.
+     */
+    public synchronized int assignedCar(int floor, Direction direction) {
+        if (floor < 1 || floor > floors || direction == Direction.IDLE) {
+            return -1;
+        }
+        return Math.max(-1, assigned[index(direction)][floor]);
+    }
+
+    /**
+     * True if a call is registered (assigned or waiting for a car).
+     */
+    public synchronized boolean isPending(int floor, Direction direction) {
+        if (floor < 1 || floor > floors || direction == Direction.IDLE) {
+            return false;
+        }
+        return assigned[index(direction)][floor] != NO_CALL;
+    }
+
+    public int getFloorCount() {
+        return floors;
+    }
+
+    private static int index(Direction direction) {
+        return direction == Direction.UP ? 0 : 1;
+    }
+}
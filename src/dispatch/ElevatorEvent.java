@@ -0,0 +1,63 @@
+package dispatch;
+
+/**
+ * One change to the system state, as seen by listeners.
+ * elevatorId is 0 for system-wide events (MODE_CHANGED, RUNNING_CHANGED).
+ * value depends on the type: the floor for FLOOR_REACHED, DEPARTED and
+ * ARRIVED, Direction.code() for DIRECTION_CHANGED, OperatingMode.ordinal()
+ * for MODE_CHANGED, 1/0 for RUNNING_CHANGED; unused (0) otherwise.
+ * sequence goes up by one with every event, in the order they happened.
+ */
+public record ElevatorEvent(Type type, int elevatorId, int value, long sequence) {
+
+    public enum Type {
+        FLOOR_REACHED, DOOR_OPENED, DOOR_CLOSED, DIRECTION_CHANGED,
+        ENABLED, DISABLED, MODE_CHANGED, RUNNING_CHANGED, DEPARTED, ARRIVED;
+
+        /**
+         * Events that describe the same thing replace each other when coalesced
+         * (a door that opened and closed again only reports the close).
+         */
+        int slot() {
+            return switch (this) {
+                case FLOOR_REACHED -> 0;
+                case DOOR_OPENED, DOOR_CLOSED -> 1;
+                case DIRECTION_CHANGED -> 2;
+                case ENABLED, DISABLED -> 3;
+                case MODE_CHANGED -> 4;
+                case RUNNING_CHANGED -> 5;
+                case DEPARTED, ARRIVED -> 6;
+            };
+        }
+    }
+
+    public int getFloor() {
+        return value;
+    }
+
+    public Direction getDirection() {
+        return Direction.fromCode(value);
+    }
+
+    public OperatingMode getMode() {
+        return OperatingMode.fromOrdinal(value);
+    }
+
+    public boolean isRunning() {
+        return value != 0;
+    }
+
+    @Override
+    public String toString() {
+        String what = switch (type) {
+            case FLOOR_REACHED -> "floor " + value;
+            case DEPARTED -> "departed " + value;
+            case ARRIVED -> "arrived " + value;
+            case DIRECTION_CHANGED -> "direction " + getDirection();
+            case MODE_CHANGED -> "mode " + getMode();
+            case RUNNING_CHANGED -> isRunning() ? "running" : "stopped";
+            default -> type.name().toLowerCase().replace('_', ' ');
+        };
+        return elevatorId == 0 ? "SYSTEM: " + what : "ELEV " + elevatorId + ": " + what;
+    }
+}
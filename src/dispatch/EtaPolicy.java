@@ -0,0 +1,122 @@
+package dispatch;
+
+/**
+ * Sends each hall call to the car with the shortest estimated time to get
+ * there, given its position, direction and the stops it already has.
+ *
+ * The estimate follows the car's sweep: it keeps going while it has stops
+ * ahead, then turns around. A call is picked up on the way when the car is
+ * already heading in the call's direction, or where the car turns.
+ */
+public class EtaPolicy implements DispatchPolicy {
+
+    // Same timings as the car animation: 400 ms per floor, doors open 2 s
+    // and a 2 s wait after closing
+    public static final long FLOOR_MILLIS = 400;
+    public static final long STOP_MILLIS = 4000;
+
+    private final int[] stops;
+
+    public EtaPolicy(int floors) {
+        this.stops = new int[floors + 1];
+    }
+
+    @Override
+    public synchronized int choose(CarView[] cars, int floor, Direction direction) {
+        int best = -1;
+        long bestEta = Long.MAX_VALUE;
+        int bestStops = Integer.MAX_VALUE;
+        for (int i = 0; i < cars.length; i++) {
+            long eta = estimateMillis(cars[i], floor, direction);
+            if (eta == Long.MAX_VALUE) {
+                continue;
+            }
+            // Ties go to the car with less to do
+            int count = cars[i].getStops(stops);
+            if (eta < bestEta || (eta == bestEta && count < bestStops)) {
+                best = i;
+                bestEta = eta;
+                bestStops = count;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public synchronized long cost(CarView car, int floor, Direction direction) {
+        return estimateMillis(car, floor, direction);
+    }
+
+    /**
+     * Estimated time for the car to open its doors at the floor for a call
+     * in the given direction, or Long.MAX_VALUE if it is not available.
+     */
+    public synchronized long estimateMillis(CarView car, int floor, Direction direction) {
+        if (!car.isAvailable()) {
+            return Long.MAX_VALUE;
+        }
+        int count = car.getStops(stops);
+        int pos = car.getCurrentFloor();
+        if (count == 0) {
+            return Math.abs(floor - pos) * FLOOR_MILLIS;
+        }
+        Direction dir = car.getTravelDirection();
+        if (dir == Direction.IDLE) {
+            dir = Direction.between(pos, nearestStop(pos, count));
+            if (dir == Direction.IDLE) {
+                dir = Direction.UP;
+            }
+        }
+
+        // Floors already covered by earlier sweeps
+        int sweptLow = pos;
+        int sweptHigh = pos;
+        long millis = 0;
+        for (int sweep = 0; sweep < 2; sweep++) {
+            int far = pos;
+            int ahead = 0;
+            int before = 0;
+            for (int i = 0; i < count; i++) {
+                int s = stops[i];
+                if ((s >= sweptLow && s <= sweptHigh) || !isAhead(dir, pos, s)) {
+                    continue;
+                }
+                ahead++;
+                if (isAhead(dir, far, s)) {
+                    far = s;
+                }
+                if (isAhead(dir, s, floor)) {
+                    before++;
+                }
+            }
+            boolean onTheWay = floor == pos || isAhead(dir, pos, floor);
+            // Picked up on this sweep if going the call's way, or if the car turns there
+            if (onTheWay && (direction == dir || direction == Direction.IDLE || !isAhead(dir, floor, far))) {
+                return millis + Math.abs(floor - pos) * FLOOR_MILLIS + before * STOP_MILLIS;
+            }
+            millis += Math.abs(far - pos) * FLOOR_MILLIS + ahead * STOP_MILLIS;
+            sweptLow = Math.min(sweptLow, far);
+            sweptHigh = Math.max(sweptHigh, far);
+            pos = far;
+            dir = dir.opposite();
+        }
+        return millis + Math.abs(floor - pos) * FLOOR_MILLIS;
+    }
+
+    private int nearestStop(int pos, int count) {
+        int nearest = stops[0];
+        for (int i = 1; i < count; i++) {
+            if (Math.abs(stops[i] - pos) < Math.abs(nearest - pos)) {
+                nearest = stops[i];
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * True if floor b lies beyond floor a when travelling in dir.
+     */
+    private static boolean isAhead(Direction dir, int a, int b) {
+        return dir == Direction.UP ? b > a : b < a;
+    }
+}
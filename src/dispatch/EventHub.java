@@ -0,0 +1,127 @@
+package dispatch;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Hands ElevatorEvents to listeners as the state changes.
+ * The writer calls publish() at the moment something changes (a door
+ * opens, a car reaches a floor), so every transition becomes an event.
+ * Each listener is called on a pool thread, never the publisher's, one event
+ * at a time and in order. A listener that keeps up sees every event; only
+ * once one falls more than a backlog behind (BACKLOG events, more for big
+ * fleets) are its undelivered events coalesced to the latest per car and
+ * kind (floor 3, 4, 5 becomes floor 5). Nothing runs while nothing changes.
+ */
+public class EventHub {
+
+    // Undelivered events a listener may have before it counts as behind
+    static final int BACKLOG = 256;
+
+    private static final ExecutorService DELIVERY = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "elevator-events");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final int cars;
+    // Twice the most events coalescing can leave, so it runs at most every so often
+    private final int backlog;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public EventHub(int cars) {
+        this.cars = cars;
+        this.backlog = Math.max(BACKLOG, 2 * ElevatorEvent.Type.values().length * (cars + 1));
+    }
+
+    public void addListener(Consumer<ElevatorEvent> listener) {
+        subscribers.add(new Subscriber(listener));
+    }
+
+    public void removeListener(Consumer<ElevatorEvent> listener) {
+        subscribers.removeIf(s -> s.listener == listener);
+    }
+
+    /**
+     * One state change, reported where it happened. value is as described
+     * in ElevatorEvent.
+     */
+    public void publish(ElevatorEvent.Type type, int elevatorId, int value) {
+        // No listeners, no allocation
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        ElevatorEvent event = new ElevatorEvent(type, elevatorId, value, sequence.incrementAndGet());
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    /**
+     * One listener with its own pending events and at most one drain task.
+     */
+    private final class Subscriber {
+        final Consumer<ElevatorEvent> listener;
+        // Undelivered events, oldest first
+        private final ArrayDeque<ElevatorEvent> pending = new ArrayDeque<>();
+        private boolean scheduled;
+
+        Subscriber(Consumer<ElevatorEvent> listener) {
+            this.listener = listener;
+        }
+
+        void offer(ElevatorEvent event) {
+            synchronized (this) {
+                pending.addLast(event);
+                if (pending.size() > backlog) {
+                    coalesce();
+                }
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            DELIVERY.execute(this::drain);
+        }
+
+        // Behind: keep only the latest pending event per (slot, car), in the
+        // order of their last change
+        private void coalesce() {
+            Map<Integer, ElevatorEvent> latest = new LinkedHashMap<>();
+            for (ElevatorEvent event : pending) {
+                int key = event.type().slot() * (cars + 1) + event.elevatorId();
+                // Re-insert so a replaced event moves to the back
+                latest.remove(key);
+                latest.put(key, event);
+            }
+            pending.clear();
+            pending.addAll(latest.values());
+        }
+
+        private void drain() {
+            while (true) {
+                ElevatorEvent event;
+                synchronized (this) {
+                    event = pending.pollFirst();
+                    if (event == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    listener.accept(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Elevator listener failed: " + e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package dispatch;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Binary log of every state transition, for offline analysis.
+ * Each event is one fixed-size record written straight into a memory-mapped
+ * segment file; nothing is formatted and nothing is allocated per event.
+ * When a segment is full the next one is started, and once there are more
+ * than maxSegments the oldest is deleted, so the log keeps a rolling window
+ * of the most recent events in bounded disk.
+ *
+ * Record (16 bytes): time (epoch millis, long), car (short, 0 = system),
+ * type (byte, ElevatorEvent.Type ordinal + 1), unused byte, value (int).
+ * A record whose type is 0 was never written, so a reader stops there.
+ * Opening a log starts a fresh segment with a session record (type 0xFF,
+ * car and value 0), so a reader can tell where the app was restarted.
+ *
+ * Written where the state changes (ElevatorAPI.transition), each record with
+ * its own timestamp; see replay() for reading a log back.
+ */
+public class EventLog implements AutoCloseable {
+
+    static final int RECORD_BYTES = 16;
+    private static final String PREFIX = "events-";
+    private static final String SUFFIX = ".log";
+    // Type byte of the record written when a log is opened
+    private static final int SESSION = 0xFF;
+
+    /**
+     * Called once per record by replay(), oldest first.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        void event(long timeMillis, int car, ElevatorEvent.Type type, int value);
+
+        /**
+         * The app opened the log at this time; events after it belong to a
+         * new session, and nothing carries over from the one before.
+         */
+        default void sessionStarted(long timeMillis) {
+        }
+    }
+
+    private final Path dir;
+    private final int segmentRecords;
+    private final int maxSegments;
+    private final ArrayDeque<Path> files = new ArrayDeque<>();
+    private long nextSegment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writeIndex;
+    private long written;
+    private boolean failed;
+
+    /**
+     * Continues after any segments already in dir, in a new segment that
+     * starts with a session record.
+     *
+     * @param segmentRecords events per segment file
+     * @param maxSegments    segment files kept (the oldest is deleted beyond this)
+     */
+    public EventLog(Path dir, int segmentRecords, int maxSegments) throws IOException {
+        if (segmentRecords < 1 || maxSegments < 1) {
+            throw new IllegalArgumentException("Event log needs at least one record and one segment");
+        }
+        this.dir = dir;
+        this.segmentRecords = segmentRecords;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(dir);
+        for (Path file : segments(dir)) {
+            files.addLast(file);
+            nextSegment = Math.max(nextSegment, segmentNumber(file) + 1);
+        }
+        startSegment();
+        put(System.currentTimeMillis(), 0, SESSION, 0);
+    }
+
+    /**
+     * Reads -Deventlog.dir (default java.io.tmpdir/elevator-events),
+     * -Deventlog.segmentRecords (default 65536, 1 MB per file) and
+     * -Deventlog.maxSegments (default 16).
+     */
+    public static EventLog fromSystemProperties() throws IOException {
+        return new EventLog(defaultDir(),
+                Integer.getInteger("eventlog.segmentRecords", 1 << 16),
+                Integer.getInteger("eventlog.maxSegments", 16));
+    }
+
+    /**
+     * -Deventlog.dir, or java.io.tmpdir/elevator-events when not set.
+     */
+    public static Path defaultDir() {
+        String dir = System.getProperty("eventlog.dir");
+        return dir != null ? Paths.get(dir) : Paths.get(System.getProperty("java.io.tmpdir"), "elevator-events");
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    /**
+     * Events written since this log was opened.
+     */
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    /**
+     * Appends one record. Called at the write site of each transition.
+     */
+    public synchronized void append(long timeMillis, int car, ElevatorEvent.Type type, int value) {
+        if (buffer == null) {
+            return;
+        }
+        if (writeIndex == segmentRecords) {
+            try {
+                startSegment();
+            } catch (IOException e) {
+                // Keep the app running; the log just stops growing
+                if (!failed) {
+                    failed = true;
+                    System.err.println("Event log stopped: " + e.getMessage());
+                }
+                buffer = null;
+                return;
+            }
+        }
+        put(timeMillis, car, type.ordinal() + 1, value);
+        written++;
+    }
+
+    private void put(long timeMillis, int car, int type, int value) {
+        int at = writeIndex * RECORD_BYTES;
+        buffer.putLong(at, timeMillis);
+        buffer.putShort(at + 8, (short) car);
+        buffer.put(at + 11, (byte) 0);
+        buffer.putInt(at + 12, value);
+        // Type last: a record only counts once it is complete
+        buffer.put(at + 10, (byte) type);
+        writeIndex++;
+    }
+
+    private void startSegment() throws IOException {
+        closeSegment();
+        Path file = dir.resolve(String.format("%s%08d%s", PREFIX, nextSegment++, SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_BYTES);
+        writeIndex = 0;
+        files.addLast(file);
+        while (files.size() > maxSegments) {
+            Path oldest = files.removeFirst();
+            try {
+                Files.deleteIfExists(oldest);
+            } catch (IOException e) {
+                System.err.println("Could not delete event log segment " + oldest + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void closeSegment() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Could not close event log segment: " + e.getMessage());
+        }
+        channel = null;
+        buffer = null;
+    }
+
+    /**
+     * Flushes the current segment to disk and stops writing.
+     */
+    @Override
+    public synchronized void close() {
+        closeSegment();
+    }
+
+    /**
+     * Streams every record in dir to the visitor, oldest segment first.
+     * One segment is mapped at a time, so a log of any size can be read in
+     * constant memory. Safe to run against a log that is still being written;
+     * it sees whatever was complete when it got there. Session records go
+     * to visitor.sessionStarted().
+     */
+    public static void replay(Path dir, Visitor visitor) throws IOException {
+        ElevatorEvent.Type[] types = ElevatorEvent.Type.values();
+        for (Path file : segments(dir)) {
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = in.size() - in.size() % RECORD_BYTES;
+                if (size == 0) {
+                    continue;
+                }
+                MappedByteBuffer records = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                for (int at = 0; at < size; at += RECORD_BYTES) {
+                    int type = records.get(at + 10) & 0xFF;
+                    if (type == 0) {
+                        break;
+                    }
+                    if (type == SESSION) {
+                        visitor.sessionStarted(records.getLong(at));
+                        continue;
+                    }
+                    if (type > types.length) {
+                        continue;
+                    }
+                    visitor.event(records.getLong(at), records.getShort(at + 8) & 0xFFFF,
+                            types[type - 1], records.getInt(at + 12));
+                }
+            }
+        }
+    }
+
+    /**
+     * Segment files in dir, oldest first.
+     */
+    static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> listing = Files.list(dir)) {
+            return listing
+                    .filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX) && segmentNumber(p) >= 0;
+                    })
+                    .sorted((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+                    .toList();
+        }
+    }
+
+    private static long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+}
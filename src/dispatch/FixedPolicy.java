@@ -0,0 +1,27 @@
+package dispatch;
+
+/**
+ * Splits the building into one zone of floors per car and always sends a
+ * floor's calls to its zone's car (the next available one if that car is out).
+ * Baseline for comparing EtaPolicy against.
+ */
+public class FixedPolicy implements DispatchPolicy {
+
+    private final int floors;
+
+    public FixedPolicy(int floors) {
+        this.floors = floors;
+    }
+
+    @Override
+    public int choose(CarView[] cars, int floor, Direction direction) {
+        int home = Math.min(cars.length - 1, (floor - 1) * cars.length / floors);
+        for (int i = 0; i < cars.length; i++) {
+            int car = (home + i) % cars.length;
+            if (cars[car].isAvailable()) {
+                return car;
+            }
+        }
+        return -1;
+    }
+}
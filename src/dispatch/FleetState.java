@@ -0,0 +1,185 @@
+package dispatch;
+
+import Message.Commands;
+
+import java.util.Arrays;
+
+/**
+ * State of every car in a few primitive arrays, one slot per car (0-based).
+ * Floor and target are ints, door/moving/enabled/direction are packed into
+ * one flags word, and the mode is stored as its ordinal. Loops over the
+ * whole fleet touch a handful of contiguous arrays and nothing allocates.
+ *
+ * Not thread safe: one thread writes (the FX thread in the GUI, the event
+ * loop in the simulator).
+ */
+public final class FleetState {
+
+    // flags word layout
+    public static final int DOOR_OPEN = 1;
+    public static final int MOVING = 1 << 1;
+    public static final int ENABLED = 1 << 2;
+    private static final int DIR_SHIFT = 3;
+    public static final int DIR_MASK = 0x3 << DIR_SHIFT;
+
+    // No target floor
+    public static final int NONE = 0;
+
+    private final int[] floor;
+    private final int[] target;
+    private final int[] flags;
+    private final byte[] mode;
+
+    /**
+     * All cars at floor 1, enabled, idle, doors closed, CENTRALIZED.
+     */
+    public FleetState(int cars) {
+        this.floor = new int[cars];
+        this.target = new int[cars];
+        this.flags = new int[cars];
+        this.mode = new byte[cars];
+        resetAll(1);
+        setModeAll(OperatingMode.CENTRALIZED);
+    }
+
+    public int size() {
+        return floor.length;
+    }
+
+    public int getFloor(int car) {
+        return floor[car];
+    }
+
+    public void setFloor(int car, int value) {
+        floor[car] = value;
+    }
+
+    /**
+     * Floor the car is heading for, NONE if it has nowhere to go.
+     */
+    public int getTarget(int car) {
+        return target[car];
+    }
+
+    public void setTarget(int car, int value) {
+        target[car] = value;
+    }
+
+    /**
+     * Raw flags word (DOOR_OPEN | MOVING | ENABLED | direction << 3).
+     */
+    public int getFlags(int car) {
+        return flags[car];
+    }
+
+    public boolean isDoorOpen(int car) {
+        return (flags[car] & DOOR_OPEN) != 0;
+    }
+
+    public void setDoorOpen(int car, boolean open) {
+        setFlag(car, DOOR_OPEN, open);
+    }
+
+    public boolean isMoving(int car) {
+        return (flags[car] & MOVING) != 0;
+    }
+
+    public void setMoving(int car, boolean moving) {
+        setFlag(car, MOVING, moving);
+    }
+
+    public boolean isEnabled(int car) {
+        return (flags[car] & ENABLED) != 0;
+    }
+
+    public void setEnabled(int car, boolean enabled) {
+        setFlag(car, ENABLED, enabled);
+    }
+
+    public Direction getDirection(int car) {
+        return Direction.fromCode((flags[car] & DIR_MASK) >>> DIR_SHIFT);
+    }
+
+    public void setDirection(int car, Direction direction) {
+        flags[car] = (flags[car] & ~DIR_MASK) | (direction.code() << DIR_SHIFT);
+    }
+
+    public OperatingMode getMode(int car) {
+        return OperatingMode.fromOrdinal(mode[car]);
+    }
+
+    public void setMode(int car, OperatingMode value) {
+        mode[car] = (byte) value.ordinal();
+    }
+
+    private void setFlag(int car, int bit, boolean on) {
+        flags[car] = on ? flags[car] | bit : flags[car] & ~bit;
+    }
+
+    // Bulk updates
+
+    public void setModeAll(OperatingMode value) {
+        Arrays.fill(mode, (byte) value.ordinal());
+    }
+
+    public void setEnabledAll(boolean enabled) {
+        for (int car = 0; car < flags.length; car++) {
+            setFlag(car, ENABLED, enabled);
+        }
+    }
+
+    /**
+     * Every car to the given floor: enabled, idle, doors closed, no target.
+     * Modes are left alone.
+     */
+    public void resetAll(int atFloor) {
+        Arrays.fill(floor, atFloor);
+        Arrays.fill(target, NONE);
+        Arrays.fill(flags, ENABLED);
+    }
+
+    /**
+     * Copies the cars whose flags match (flags & mask) == value into the
+     * array and returns how many there are, e.g.
+     * select(ENABLED | MOVING, ENABLED, into) for enabled idle cars.
+     */
+    public int select(int mask, int value, int[] into) {
+        int n = 0;
+        for (int car = 0; car < flags.length; car++) {
+            if ((flags[car] & mask) == value) {
+                into[n++] = car;
+            }
+        }
+        return n;
+    }
+
+    public int count(int mask, int value) {
+        int n = 0;
+        for (int f : flags) {
+            if ((f & mask) == value) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Overwrites this fleet with another of the same size.
+     */
+    public void copyFrom(FleetState other) {
+        if (other.size() != size()) {
+            throw new IllegalArgumentException("Fleet sizes differ: " + other.size() + " vs " + size());
+        }
+        System.arraycopy(other.floor, 0, floor, 0, floor.length);
+        System.arraycopy(other.target, 0, target, 0, target.length);
+        System.arraycopy(other.flags, 0, flags, 0, flags.length);
+        System.arraycopy(other.mode, 0, mode, 0, mode.length);
+    }
+
+    /**
+     * STATUS arg for one car, see Commands.statusArg.
+     */
+    public int statusArg(int car) {
+        return Commands.statusArg(floor[car], isDoorOpen(car), isMoving(car), (flags[car] & DIR_MASK) >>> DIR_SHIFT);
+    }
+}
@@ -0,0 +1,114 @@
+package dispatch;
+
+import java.util.BitSet;
+
+/**
+ * Pending hall calls of the building, one bit per floor and direction.
+ * Pressing a call that is already pending changes nothing and tells nobody;
+ * the listener only hears about calls switching on or off, so indicators
+ * are only touched when they change.
+ */
+public class HallCalls {
+
+    /**
+     * Told when a call switches on (pending) or off (served or cancelled).
+     */
+    public interface Listener {
+        void hallCallChanged(int floor, Direction direction, boolean pending);
+    }
+
+    private final int floors;
+    private final BitSet up = new BitSet();
+    private final BitSet down = new BitSet();
+    private volatile Listener listener;
+
+    public HallCalls(int floors) {
+        this.floors = floors;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Registers a call. Returns false if it was already pending.
+     */
+    public boolean register(int floor, Direction direction) {
+        if (floor < 1 || floor > floors) {
+            throw new IllegalArgumentException("No floor " + floor);
+        }
+        if (direction == Direction.IDLE) {
+            throw new IllegalArgumentException("Hall calls go UP or DOWN");
+        }
+        synchronized (this) {
+            BitSet calls = bits(direction);
+            if (calls.get(floor)) {
+                return false;
+            }
+            calls.set(floor);
+        }
+        notifyListener(floor, direction, true);
+        return true;
+    }
+
+    /**
+     * Clears a call. Returns false if it was not pending.
+     */
+    public boolean clear(int floor, Direction direction) {
+        if (direction == Direction.IDLE || floor < 1 || floor > floors) {
+            return false;
+        }
+        synchronized (this) {
+            BitSet calls = bits(direction);
+            if (!calls.get(floor)) {
+                return false;
+            }
+            calls.clear(floor);
+        }
+        notifyListener(floor, direction, false);
+        return true;
+    }
+
+    /**
+     * Clears every call (FIRE recall).
+     */
+    public void clearAll() {
+        for (int floor = 1; floor <= floors; floor++) {
+            clear(floor, Direction.UP);
+            clear(floor, Direction.DOWN);
+        }
+    }
+
+    public synchronized boolean isPending(int floor, Direction direction) {
+        return direction != Direction.IDLE && bits(direction).get(floor);
+    }
+
+    /**
+     * Number of pending calls, both directions.
+     */
+    public synchronized int count() {
+        return up.cardinality() + down.cardinality();
+    }
+
+    /**
+     * Copy of the pending floors in one direction.
+     */
+    public synchronized BitSet pending(Direction direction) {
+        return direction == Direction.IDLE ? new BitSet() : (BitSet) bits(direction).clone();
+    }
+
+    public int getFloorCount() {
+        return floors;
+    }
+
+    private BitSet bits(Direction direction) {
+        return direction == Direction.UP ? up : down;
+    }
+
+    private void notifyListener(int floor, Direction direction, boolean pending) {
+        Listener l = listener;
+        if (l != null) {
+            l.hallCallChanged(floor, direction, pending);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package dispatch;
+
+/**
+ * Operating mode of the system and of each car.
+ * CENTRALIZED: the dispatcher assigns hall calls. INDEPENDENT: cars only
+ * answer their own buttons. FIRE: recall to the lobby, no calls accepted.
+ */
+public enum OperatingMode {
+    CENTRALIZED, INDEPENDENT, FIRE;
+
+    private static final OperatingMode[] BY_ORDINAL = values();
+
+    /**
+     * Mode for an ordinal() value, without allocating.
+     */
+    public static OperatingMode fromOrdinal(int ordinal) {
+        return BY_ORDINAL[ordinal];
+    }
+}
@@ -0,0 +1,22 @@
+package dispatch;
+
+/**
+ * Hands hall calls to the available cars in turn, ignoring where they are.
+ * Baseline for comparing EtaPolicy against.
+ */
+public class RoundRobinPolicy implements DispatchPolicy {
+
+    private int next;
+
+    @Override
+    public synchronized int choose(CarView[] cars, int floor, Direction direction) {
+        for (int i = 0; i < cars.length; i++) {
+            int car = (next + i) % cars.length;
+            if (cars[car].isAvailable()) {
+                next = (car + 1) % cars.length;
+                return car;
+            }
+        }
+        return -1;
+    }
+}
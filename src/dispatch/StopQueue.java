@@ -0,0 +1,207 @@
+package dispatch;
+
+import java.util.BitSet;
+
+/**
+ * Pending stops of one car, served in LOOK order: keep going in the current
+ * direction while there are stops ahead, then turn around.
+ *
+ * Car calls (buttons inside the car) stop the car whichever way it goes.
+ * Hall calls carry a direction and only stop a car going that way, or the
+ * car turning around at that floor, so an UP passenger is not picked up by
+ * a car on its way down.
+ *
+ * Thread safe; the car moves on its own thread while others add stops.
+ */
+public class StopQueue {
+
+    private final BitSet carCalls = new BitSet();
+    private final BitSet hallUp = new BitSet();
+    private final BitSet hallDown = new BitSet();
+
+    public synchronized boolean addCarCall(int floor) {
+        boolean added = !carCalls.get(floor);
+        carCalls.set(floor);
+        return added;
+    }
+
+    public synchronized boolean addHallCall(int floor, Direction direction) {
+        BitSet calls = hall(direction);
+        boolean added = !calls.get(floor);
+        calls.set(floor);
+        return added;
+    }
+
+    /**
+     * Takes back a hall call that was reassigned to another car.
+     */
+    public synchronized void removeHallCall(int floor, Direction direction) {
+        hall(direction).clear(floor);
+    }
+
+    /**
+     * The car opened its doors here while travelling in dir. Clears the car
+     * call and the hall call in the direction the car leaves in, and returns
+     * that direction (IDLE if it has nothing left to do).
+     */
+    public synchronized Direction serve(int floor, Direction dir) {
+        carCalls.clear(floor);
+        if (dir == Direction.IDLE) {
+            dir = hallUp.get(floor) ? Direction.UP : hallDown.get(floor) ? Direction.DOWN : Direction.IDLE;
+        }
+        if (dir == Direction.IDLE) {
+            int next = next(floor, Direction.IDLE);
+            return next < 0 ? Direction.IDLE : Direction.between(floor, next);
+        }
+        Direction leaving;
+        if (anyAhead(floor, dir) || hall(dir).get(floor)) {
+            leaving = dir;
+        } else if (hall(dir.opposite()).get(floor) || anyAhead(floor, dir.opposite())) {
+            leaving = dir.opposite();
+        } else {
+            leaving = Direction.IDLE;
+        }
+        if (leaving != Direction.IDLE) {
+            hall(leaving).clear(floor);
+        }
+        return leaving;
+    }
+
+    /**
+     * Drops the car calls but keeps the dispatcher's hall calls.
+     */
+    public synchronized void clearCarCalls() {
+        carCalls.clear();
+    }
+
+    public synchronized void clear() {
+        carCalls.clear();
+        hallUp.clear();
+        hallDown.clear();
+    }
+
+    /**
+     * True if anything stops the car at this floor.
+     */
+    public synchronized boolean contains(int floor) {
+        return carCalls.get(floor) || hallUp.get(floor) || hallDown.get(floor);
+    }
+
+    public synchronized boolean isEmpty() {
+        return carCalls.isEmpty() && hallUp.isEmpty() && hallDown.isEmpty();
+    }
+
+    /**
+     * Number of floors with a stop.
+     */
+    public synchronized int size() {
+        int count = 0;
+        for (int f = nextFloor(0); f >= 0; f = nextFloor(f + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Next floor to head for from this floor when travelling in dir (LOOK),
+     * or -1 if there are no stops. Returns the floor itself if the car
+     * should stop right here.
+     */
+    public synchronized int next(int floor, Direction dir) {
+        if (dir == Direction.IDLE) {
+            if (contains(floor)) {
+                return floor;
+            }
+            int above = nextFloor(floor + 1);
+            int below = previousFloor(floor - 1);
+            return below < 0 || (above >= 0 && above - floor <= floor - below) ? above : below;
+        }
+        Direction back = dir.opposite();
+        if (carCalls.get(floor) || hall(dir).get(floor)) {
+            return floor;
+        }
+        // On this sweep: car calls and calls going our way, then the farthest
+        // call the other way, where the car turns
+        int ahead = nearestAhead(carCalls, hall(dir), floor, dir);
+        if (ahead >= 0) {
+            return ahead;
+        }
+        int turn = farthestAhead(hall(back), floor, dir);
+        if (turn >= 0) {
+            return turn;
+        }
+        // Nothing ahead: turn around here
+        if (hall(back).get(floor)) {
+            return floor;
+        }
+        ahead = nearestAhead(carCalls, hall(back), floor, back);
+        if (ahead >= 0) {
+            return ahead;
+        }
+        return farthestAhead(hall(dir), floor, back);
+    }
+
+    /**
+     * Copies the floors with a stop, lowest first, and returns how many were copied.
+     */
+    public synchronized int toArray(int[] into) {
+        int count = 0;
+        for (int f = nextFloor(0); f >= 0 && count < into.length; f = nextFloor(f + 1)) {
+            into[count++] = f;
+        }
+        return count;
+    }
+
+    private BitSet hall(Direction direction) {
+        return direction == Direction.UP ? hallUp : hallDown;
+    }
+
+    private boolean anyAhead(int floor, Direction dir) {
+        return dir == Direction.UP ? nextFloor(floor + 1) >= 0 : previousFloor(floor - 1) >= 0;
+    }
+
+    /**
+     * Lowest floor >= from with any stop, or -1.
+     */
+    private int nextFloor(int from) {
+        return min(carCalls.nextSetBit(from), min(hallUp.nextSetBit(from), hallDown.nextSetBit(from)));
+    }
+
+    /**
+     * Highest floor <= from with any stop, or -1.
+     */
+    private int previousFloor(int from) {
+        if (from < 0) {
+            return -1;
+        }
+        return Math.max(carCalls.previousSetBit(from), Math.max(hallUp.previousSetBit(from), hallDown.previousSetBit(from)));
+    }
+
+    private static int nearestAhead(BitSet a, BitSet b, int floor, Direction dir) {
+        if (dir == Direction.UP) {
+            return min(a.nextSetBit(floor + 1), b.nextSetBit(floor + 1));
+        }
+        return floor < 1 ? -1 : Math.max(a.previousSetBit(floor - 1), b.previousSetBit(floor - 1));
+    }
+
+    private static int farthestAhead(BitSet calls, int floor, Direction dir) {
+        if (dir == Direction.UP) {
+            int top = calls.length() - 1;
+            return top > floor ? top : -1;
+        }
+        int bottom = calls.nextSetBit(0);
+        return bottom >= 0 && bottom < floor ? bottom : -1;
+    }
+
+    /**
+     * Smaller of two nextSetBit results, where -1 means none.
+     */
+    private static int min(int a, int b) {
+        return a < 0 ? b : b < 0 ? a : Math.min(a, b);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "car=" + carCalls + " up=" + hallUp + " down=" + hallDown;
+    }
+}
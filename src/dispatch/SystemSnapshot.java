@@ -0,0 +1,115 @@
+package dispatch;
+
+
+import java.util.BitSet;
+
+/**
+ * Immutable view of the whole system at one moment: running flag, mode,
+ * every car's state and the pending hall calls.
+ * The writer builds a new one from its live state after each change and
+ * publishes it through a volatile field; readers just take the latest and
+ * can read it for as long as they like without locks or torn values.
+ *
+ * Cars are numbered from 1, like the ElevatorAPI getters.
+ */
+public final class SystemSnapshot {
+
+    private final long sequence;
+    private final long timeMillis;
+    private final boolean running;
+    private final OperatingMode mode;
+    private final FleetState fleet;
+    private final BitSet hallUp;
+    private final BitSet hallDown;
+
+    /**
+     * Copies everything it is given; later changes to the live state do not
+     * show through.
+     */
+    public SystemSnapshot(long sequence, boolean running, OperatingMode mode,
+                          FleetState fleet, HallCalls hallCalls) {
+        this.sequence = sequence;
+        this.timeMillis = System.currentTimeMillis();
+        this.running = running;
+        this.mode = mode;
+        this.fleet = new FleetState(fleet.size());
+        this.fleet.copyFrom(fleet);
+        this.hallUp = hallCalls.pending(Direction.UP);
+        this.hallDown = hallCalls.pending(Direction.DOWN);
+    }
+
+    /**
+     * Increases by one with every published snapshot.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * When it was taken (epoch millis).
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public OperatingMode getMode() {
+        return mode;
+    }
+
+    public int getCarCount() {
+        return fleet.size();
+    }
+
+    public int getFloor(int elevatorId) {
+        return fleet.getFloor(elevatorId - 1);
+    }
+
+    /**
+     * Next stop, FleetState.NONE when idle.
+     */
+    public int getTarget(int elevatorId) {
+        return fleet.getTarget(elevatorId - 1);
+    }
+
+    public boolean isDoorOpen(int elevatorId) {
+        return fleet.isDoorOpen(elevatorId - 1);
+    }
+
+    public boolean isMoving(int elevatorId) {
+        return fleet.isMoving(elevatorId - 1);
+    }
+
+    public boolean isEnabled(int elevatorId) {
+        return fleet.isEnabled(elevatorId - 1);
+    }
+
+    public Direction getDirection(int elevatorId) {
+        return fleet.getDirection(elevatorId - 1);
+    }
+
+    /**
+     * Packed flags word, see FleetState.
+     */
+    public int getFlags(int elevatorId) {
+        return fleet.getFlags(elevatorId - 1);
+    }
+
+    /**
+     * STATUS arg for one car, see Commands.statusArg.
+     */
+    public int statusArg(int elevatorId) {
+        return fleet.statusArg(elevatorId - 1);
+    }
+
+    public boolean isHallCallPending(int floor, Direction direction) {
+        return switch (direction) {
+            case UP -> hallUp.get(floor);
+            case DOWN -> hallDown.get(floor);
+            case IDLE -> false;
+        };
+    }
+}
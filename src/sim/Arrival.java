@@ -0,0 +1,11 @@
+package sim;
+
+/**
+ * One passenger turning up at a floor wanting to go to another.
+ *
+ * @param time simulated time in milliseconds
+ * @param from floor the passenger waits at
+ * @param to   floor the passenger wants to go to
+ */
+public record Arrival(long time, int from, int to) {
+}
@@ -0,0 +1,203 @@
+package sim;
+
+import dispatch.ElevatorEvent;
+import dispatch.EventLog;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Reads a binary EventLog and reports, per car and for the whole fleet:
+ * door cycles (open to close), trips (leaving one stop to stopping at the
+ * next, DEPARTED to ARRIVED) and utilisation (share of the logged time spent
+ * on trips, with doors open and disabled).
+ *
+ * Streams the log one record at a time and keeps only per-car counters and
+ * fixed-size histograms, so memory does not grow with the log.
+ * Time spans add up each session (first to last record after a session
+ * record), so time the app was not running between sessions written to the
+ * same directory is left out, and no interval is carried from one session
+ * into the next.
+ */
+public class EventLogAnalyzer implements EventLog.Visitor {
+
+    private static final long NONE = -1;
+
+    // Per car, indexed by elevatorId; grown as new cars show up
+    private long[] movingSince = new long[0];
+    private long[] doorSince = new long[0];
+    private long[] disabledSince = new long[0];
+    private int[] departedFrom = new int[0];
+    private long[] movingMillis = new long[0];
+    private long[] doorMillis = new long[0];
+    private long[] disabledMillis = new long[0];
+    private long[] floorsTravelled = new long[0];
+    private Histogram[] doorCycles = new Histogram[0];
+    private Histogram[] trips = new Histogram[0];
+
+    private long events;
+    private int sessions;
+    // Logged time of the sessions already ended
+    private long spanMillis;
+    // First and last record of the current session
+    private long firstMillis = NONE;
+    private long lastMillis = NONE;
+
+    @Override
+    public void sessionStarted(long timeMillis) {
+        endSession();
+    }
+
+    @Override
+    public void event(long timeMillis, int car, ElevatorEvent.Type type, int value) {
+        events++;
+        if (firstMillis == NONE) {
+            firstMillis = timeMillis;
+        }
+        lastMillis = Math.max(lastMillis, timeMillis);
+        if (car == 0) {
+            return;
+        }
+        ensureCar(car);
+        switch (type) {
+            case DOOR_OPENED -> doorSince[car] = timeMillis;
+            case DOOR_CLOSED -> {
+                if (doorSince[car] != NONE) {
+                    long open = timeMillis - doorSince[car];
+                    doorCycles[car].record(open);
+                    doorMillis[car] += open;
+                    doorSince[car] = NONE;
+                }
+            }
+            case DEPARTED -> {
+                movingSince[car] = timeMillis;
+                departedFrom[car] = value;
+            }
+            case ARRIVED -> {
+                if (movingSince[car] != NONE) {
+                    long trip = timeMillis - movingSince[car];
+                    trips[car].record(trip);
+                    movingMillis[car] += trip;
+                    floorsTravelled[car] += Math.abs(value - departedFrom[car]);
+                    movingSince[car] = NONE;
+                }
+            }
+            case DISABLED -> disabledSince[car] = timeMillis;
+            case ENABLED -> {
+                if (disabledSince[car] != NONE) {
+                    disabledMillis[car] += timeMillis - disabledSince[car];
+                    disabledSince[car] = NONE;
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void ensureCar(int car) {
+        int size = movingSince.length;
+        if (car < size) {
+            return;
+        }
+        int grown = car + 1;
+        movingSince = grow(movingSince, grown);
+        doorSince = grow(doorSince, grown);
+        disabledSince = grow(disabledSince, grown);
+        departedFrom = Arrays.copyOf(departedFrom, grown);
+        movingMillis = Arrays.copyOf(movingMillis, grown);
+        doorMillis = Arrays.copyOf(doorMillis, grown);
+        disabledMillis = Arrays.copyOf(disabledMillis, grown);
+        floorsTravelled = Arrays.copyOf(floorsTravelled, grown);
+        doorCycles = Arrays.copyOf(doorCycles, grown);
+        trips = Arrays.copyOf(trips, grown);
+        for (int id = size; id < grown; id++) {
+            doorCycles[id] = new Histogram();
+            trips[id] = new Histogram();
+        }
+    }
+
+    private static long[] grow(long[] values, int size) {
+        int from = values.length;
+        long[] grown = Arrays.copyOf(values, size);
+        Arrays.fill(grown, from, size, NONE);
+        return grown;
+    }
+
+    /**
+     * Closes intervals still open at the end of a session (a car parked with
+     * its doors open counts up to the session's last record), adds the
+     * session to the span and starts the next one from nothing.
+     */
+    private void endSession() {
+        if (firstMillis == NONE) {
+            return;
+        }
+        for (int id = 1; id < movingSince.length; id++) {
+            if (movingSince[id] != NONE) {
+                movingMillis[id] += lastMillis - movingSince[id];
+            }
+            if (doorSince[id] != NONE) {
+                doorMillis[id] += lastMillis - doorSince[id];
+            }
+            if (disabledSince[id] != NONE) {
+                disabledMillis[id] += lastMillis - disabledSince[id];
+            }
+        }
+        Arrays.fill(movingSince, NONE);
+        Arrays.fill(doorSince, NONE);
+        Arrays.fill(disabledSince, NONE);
+        spanMillis += lastMillis - firstMillis;
+        sessions++;
+        firstMillis = NONE;
+        lastMillis = NONE;
+    }
+
+    public void print() {
+        endSession();
+        long span = Math.max(1, spanMillis);
+        System.out.printf("%d events over %.1f s in %d session%s%n", events, events == 0 ? 0.0 : span / 1000.0,
+                sessions, sessions == 1 ? "" : "s");
+        Histogram allDoors = new Histogram();
+        Histogram allTrips = new Histogram();
+        long allMoving = 0;
+        int cars = 0;
+        for (int id = 1; id < movingSince.length; id++) {
+            if (doorCycles[id].getCount() == 0 && trips[id].getCount() == 0 && disabledMillis[id] == 0) {
+                continue;
+            }
+            cars++;
+            System.out.printf("ELEV %d: %s | %s | %d floors | moving %.1f%% doors %.1f%% disabled %.1f%%%n",
+                    id, describe("doors", doorCycles[id]), describe("trips", trips[id]), floorsTravelled[id],
+                    100.0 * movingMillis[id] / span, 100.0 * doorMillis[id] / span,
+                    100.0 * disabledMillis[id] / span);
+            allDoors.merge(doorCycles[id]);
+            allTrips.merge(trips[id]);
+            allMoving += movingMillis[id];
+        }
+        if (cars > 0) {
+            System.out.printf("FLEET: %s | %s | moving %.1f%%%n",
+                    describe("doors", allDoors), describe("trips", allTrips), 100.0 * allMoving / span / cars);
+        }
+    }
+
+    private static String describe(String what, Histogram histogram) {
+        if (histogram.getCount() == 0) {
+            return "0 " + what;
+        }
+        return String.format("%d %s %.1f s (p95 %.1f max %.1f)", histogram.getCount(), what,
+                histogram.getMean() / 1000, histogram.percentile(95) / 1000.0, histogram.getMax() / 1000.0);
+    }
+
+    /**
+     * Usage: EventLogAnalyzer [dir] (default: -Deventlog.dir or
+     * java.io.tmpdir/elevator-events, as written by the app).
+     */
+    public static void main(String[] args) throws IOException {
+        Path dir = args.length > 0 ? Paths.get(args[0]) : EventLog.defaultDir();
+        EventLogAnalyzer analyzer = new EventLogAnalyzer();
+        EventLog.replay(dir, analyzer);
+        analyzer.print();
+    }
+}
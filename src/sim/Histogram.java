@@ -0,0 +1,93 @@
+package sim;
+
+/**
+ * Fixed-width millisecond histogram that can be merged with others of the
+ * same shape, so runs on different threads each fill their own and the
+ * results are added up at the end. Percentiles are accurate to one bucket.
+ * Values above the range go in an overflow bucket (reported as the max seen).
+ *
+ * Not thread safe.
+ */
+public class Histogram {
+
+    public static final long DEFAULT_BUCKET_MILLIS = 100;
+    public static final long DEFAULT_RANGE_MILLIS = 10 * 60 * 1000;
+
+    private final long bucketMillis;
+    // counts[counts.length - 1] is the overflow bucket
+    private final long[] counts;
+    private long total;
+    private long sum;
+    private long max;
+
+    public Histogram() {
+        this(DEFAULT_BUCKET_MILLIS, DEFAULT_RANGE_MILLIS);
+    }
+
+    public Histogram(long bucketMillis, long rangeMillis) {
+        if (bucketMillis <= 0 || rangeMillis < bucketMillis) {
+            throw new IllegalArgumentException("Bad histogram shape " + bucketMillis + "/" + rangeMillis);
+        }
+        this.bucketMillis = bucketMillis;
+        this.counts = new long[(int) (rangeMillis / bucketMillis) + 1];
+    }
+
+    public void record(long millis) {
+        long bucket = Math.max(0, millis) / bucketMillis;
+        counts[(int) Math.min(bucket, counts.length - 1)]++;
+        total++;
+        sum += millis;
+        max = Math.max(max, millis);
+    }
+
+    public void recordAll(long[] values) {
+        for (long v : values) {
+            record(v);
+        }
+    }
+
+    /**
+     * Adds another histogram's counts into this one.
+     */
+    public void merge(Histogram other) {
+        if (other.bucketMillis != bucketMillis || other.counts.length != counts.length) {
+            throw new IllegalArgumentException("Histogram shapes differ");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    public double getMean() {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Upper edge of the bucket holding the given percentile (0..100).
+     */
+    public long percentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length - 1; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, (i + 1) * bucketMillis);
+            }
+        }
+        return max;
+    }
+}
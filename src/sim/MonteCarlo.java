@@ -0,0 +1,130 @@
+package sim;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Runs many independent, seeded simulations per configuration on a
+ * fork-join pool and aggregates them into Summaries.
+ * Run i of a configuration always uses the same seed, so results do not
+ * depend on the number of threads or how the work was split.
+ */
+public class MonteCarlo {
+
+    // Runs per leaf task; a run is tens to hundreds of ms, so small leaves balance well
+    private static final int LEAF_RUNS = 2;
+
+    private final ForkJoinPool pool;
+    private final Function<SimConfig, Iterator<Arrival>> traffic;
+
+    /**
+     * @param traffic makes the arrival stream for one run from its config
+     *                (the config's seed is already set for that run)
+     */
+    public MonteCarlo(ForkJoinPool pool, Function<SimConfig, Iterator<Arrival>> traffic) {
+        this.pool = pool;
+        this.traffic = traffic;
+    }
+
+    public MonteCarlo(Function<SimConfig, Iterator<Arrival>> traffic) {
+        this(ForkJoinPool.commonPool(), traffic);
+    }
+
+    public Summary run(SimConfig config, int runs) {
+        return sweep(List.of(config), runs).get(0);
+    }
+
+    /**
+     * Runs every configuration the given number of times. All runs of all
+     * configurations share the pool, so a long sweep keeps every core busy.
+     */
+    public List<Summary> sweep(List<SimConfig> configs, int runs) {
+        List<RunTask> tasks = new ArrayList<>();
+        for (SimConfig config : configs) {
+            tasks.add(new RunTask(traffic, config, 0, runs));
+        }
+        return pool.invoke(new RecursiveTask<List<Summary>>() {
+            @Override
+            protected List<Summary> compute() {
+                invokeAll(tasks);
+                List<Summary> summaries = new ArrayList<>();
+                for (RunTask task : tasks) {
+                    summaries.add(task.join());
+                }
+                return summaries;
+            }
+        });
+    }
+
+    /**
+     * Seed of run i; spread out so neighbouring runs are not correlated.
+     */
+    static long seedOf(SimConfig config, int run) {
+        long z = config.getSeed() + (run + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class RunTask extends RecursiveTask<Summary> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Function<SimConfig, Iterator<Arrival>> traffic;
+        private final transient SimConfig config;
+        private final int from;
+        private final int to;
+
+        RunTask(Function<SimConfig, Iterator<Arrival>> traffic, SimConfig config, int from, int to) {
+            this.traffic = traffic;
+            this.config = config;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Summary compute() {
+            if (to - from <= LEAF_RUNS) {
+                Summary summary = new Summary(config);
+                for (int i = from; i < to; i++) {
+                    SimConfig runConfig = config.copy().setSeed(seedOf(config, i));
+                    summary.add(new Simulation(runConfig).run(traffic.apply(runConfig)));
+                }
+                return summary;
+            }
+            int mid = (from + to) >>> 1;
+            RunTask left = new RunTask(traffic, config, from, mid);
+            left.fork();
+            Summary right = new RunTask(traffic, config, mid, to).compute();
+            Summary summary = left.join();
+            summary.merge(right);
+            return summary;
+        }
+    }
+
+    /**
+     * Compares the dispatch policies at 3 and 4 cars.
+     * Usage: java sim.MonteCarlo [runs] [profile] [peakPerMinute]
+     */
+    public static void main(String[] args) {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        TrafficProfile profile = TrafficProfile.named(args.length > 1 ? args[1] : "office-day");
+        double peakPerMinute = args.length > 2 ? Double.parseDouble(args[2]) : 20;
+        List<SimConfig> configs = new ArrayList<>();
+        for (int cars : new int[]{3, 4}) {
+            for (String policy : new String[]{"eta", "round-robin", "fixed"}) {
+                configs.add(new SimConfig().setCars(cars).setPolicy(policy));
+            }
+        }
+        MonteCarlo monteCarlo = new MonteCarlo(config -> new TrafficGenerator(config, profile, peakPerMinute));
+        long start = System.nanoTime();
+        for (Summary summary : monteCarlo.sweep(configs, runs)) {
+            System.out.println(summary);
+        }
+        System.out.printf("%d runs on %d threads in %d ms%n", runs * configs.size(),
+                monteCarlo.pool.getParallelism(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
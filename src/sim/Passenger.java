@@ -0,0 +1,17 @@
+package sim;
+
+/**
+ * A passenger inside the simulation: when they arrived, boarded and where to.
+ */
+final class Passenger {
+    final long arrived;
+    final int from;
+    final int to;
+    long boarded = -1;
+
+    Passenger(Arrival arrival) {
+        this.arrived = arrival.time();
+        this.from = arrival.from();
+        this.to = arrival.to();
+    }
+}
@@ -0,0 +1,110 @@
+package sim;
+
+import dispatch.EtaPolicy;
+
+/**
+ * Building and timing settings for a simulation run.
+ * Defaults match the command center: 4 cars, 10 floors, 400 ms per floor,
+ * doors open 2 s and a 2 s wait after closing.
+ */
+public class SimConfig {
+
+    private int cars = 4;
+    private int floors = 10;
+    private String policy = "eta";
+    private long floorMillis = EtaPolicy.FLOOR_MILLIS;
+    private long doorOpenMillis = 2000;
+    private long afterCloseMillis = 2000;
+    private long durationMillis = 24L * 60 * 60 * 1000;
+    private long seed = 1;
+
+    public int getCars() {
+        return cars;
+    }
+
+    public SimConfig setCars(int cars) {
+        this.cars = cars;
+        return this;
+    }
+
+    public int getFloors() {
+        return floors;
+    }
+
+    public SimConfig setFloors(int floors) {
+        this.floors = floors;
+        return this;
+    }
+
+    /**
+     * Dispatch policy name, see DispatchPolicy.named().
+     */
+    public String getPolicy() {
+        return policy;
+    }
+
+    public SimConfig setPolicy(String policy) {
+        this.policy = policy;
+        return this;
+    }
+
+    public long getFloorMillis() {
+        return floorMillis;
+    }
+
+    public SimConfig setFloorMillis(long floorMillis) {
+        this.floorMillis = floorMillis;
+        return this;
+    }
+
+    public long getDoorOpenMillis() {
+        return doorOpenMillis;
+    }
+
+    public SimConfig setDoorOpenMillis(long doorOpenMillis) {
+        this.doorOpenMillis = doorOpenMillis;
+        return this;
+    }
+
+    public long getAfterCloseMillis() {
+        return afterCloseMillis;
+    }
+
+    public SimConfig setAfterCloseMillis(long afterCloseMillis) {
+        this.afterCloseMillis = afterCloseMillis;
+        return this;
+    }
+
+    /**
+     * Simulated time to run for; passengers still travelling at the end are not counted.
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public SimConfig setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+        return this;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public SimConfig setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public SimConfig copy() {
+        return new SimConfig().setCars(cars).setFloors(floors).setPolicy(policy)
+                .setFloorMillis(floorMillis).setDoorOpenMillis(doorOpenMillis)
+                .setAfterCloseMillis(afterCloseMillis).setDurationMillis(durationMillis).setSeed(seed);
+    }
+
+    @Override
+    public String toString() {
+        return cars + " cars, " + floors + " floors, " + policy
+                + ", dwell " + doorOpenMillis + "+" + afterCloseMillis + " ms";
+    }
+}
@@ -0,0 +1,125 @@
+package sim;
+
+import java.util.Arrays;
+
+/**
+ * Outcome of one simulation run: passenger wait and journey times plus how
+ * hard the cars worked.
+ * Wait = arrival at the floor until boarding; journey = arrival until alighting.
+ */
+public class SimResult {
+
+    private final SimConfig config;
+    private final long[] waits;
+    private final long[] journeys;
+    private final int unfinished;
+    private final long floorsTravelled;
+    private final long stops;
+    private final long reversals;
+
+    SimResult(SimConfig config, long[] waits, long[] journeys, int unfinished,
+              long floorsTravelled, long stops, long reversals) {
+        this.config = config;
+        this.waits = waits;
+        this.journeys = journeys;
+        this.unfinished = unfinished;
+        this.floorsTravelled = floorsTravelled;
+        this.stops = stops;
+        this.reversals = reversals;
+        Arrays.sort(this.waits);
+        Arrays.sort(this.journeys);
+    }
+
+    public SimConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Passengers delivered to their floor.
+     */
+    public int getPassengers() {
+        return journeys.length;
+    }
+
+    /**
+     * Passengers still waiting or riding when the run ended.
+     */
+    public int getUnfinished() {
+        return unfinished;
+    }
+
+    public double getMeanWaitMillis() {
+        return mean(waits);
+    }
+
+    /**
+     * Wait time at the given percentile (0..100).
+     */
+    public long getWaitPercentileMillis(double percentile) {
+        return percentile(waits, percentile);
+    }
+
+    public double getMeanJourneyMillis() {
+        return mean(journeys);
+    }
+
+    public long getJourneyPercentileMillis(double percentile) {
+        return percentile(journeys, percentile);
+    }
+
+    public long getFloorsTravelled() {
+        return floorsTravelled;
+    }
+
+    /**
+     * Door cycles, all cars.
+     */
+    public long getStops() {
+        return stops;
+    }
+
+    /**
+     * Times a car set off in the opposite direction to its last trip.
+     */
+    public long getReversals() {
+        return reversals;
+    }
+
+    // Sorted raw times, for aggregation; not copied
+    long[] waits() {
+        return waits;
+    }
+
+    long[] journeys() {
+        return journeys;
+    }
+
+    private static double mean(long[] values) {
+        if (values.length == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (long v : values) {
+            sum += v;
+        }
+        return (double) sum / values.length;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d passengers (%d unfinished) | wait avg %.1f s p95 %.1f s"
+                        + " | journey avg %.1f s p95 %.1f s | %d floors, %d stops, %d reversals",
+                config, getPassengers(), unfinished,
+                getMeanWaitMillis() / 1000, getWaitPercentileMillis(95) / 1000.0,
+                getMeanJourneyMillis() / 1000, getJourneyPercentileMillis(95) / 1000.0,
+                floorsTravelled, stops, reversals);
+    }
+}
@@ -0,0 +1,266 @@
+package sim;
+
+import dispatch.CarView;
+import dispatch.Direction;
+import dispatch.DispatchPolicy;
+import dispatch.Dispatcher;
+import dispatch.FleetState;
+import dispatch.HallCalls;
+import dispatch.StopQueue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Headless discrete-event simulation of the elevator group.
+ * Time only moves from one event to the next (a car reaching a floor, doors
+ * finishing a cycle, a passenger turning up), so a day of traffic runs in
+ * well under a second. Cars behave like ElevatorPanel: one floor at a time,
+ * LOOK order from a StopQueue, doors open then a wait after closing, and
+ * hall calls go through the same Dispatcher and HallCalls as the GUI.
+ *
+ * Not thread safe; one run per instance.
+ */
+public class Simulation {
+
+    private record Event(long time, long seq, Runnable action) {
+    }
+
+    private final SimConfig config;
+    private final PriorityQueue<Event> events = new PriorityQueue<>(
+            Comparator.comparingLong(Event::time).thenComparingLong(Event::seq));
+    private long now;
+    private long seq;
+
+    private final Car[] cars;
+    // Floor, target, moving and direction of every car
+    private final FleetState fleet;
+    private final Dispatcher dispatcher;
+    private final HallCalls hallCalls;
+    // Passengers waiting per floor: [floor][0] going up, [floor][1] going down
+    private final ArrayDeque<Passenger>[][] waiting;
+
+    private long[] waits = new long[1024];
+    private long[] journeys = new long[1024];
+    private int finished;
+    private int started;
+    private long floorsTravelled;
+    private long stops;
+    private long reversals;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Simulation(SimConfig config) {
+        this.config = config;
+        this.fleet = new FleetState(config.getCars());
+        this.cars = new Car[config.getCars()];
+        for (int i = 0; i < cars.length; i++) {
+            cars[i] = new Car(i);
+        }
+        this.dispatcher = new Dispatcher(cars, config.getFloors(),
+                DispatchPolicy.named(config.getPolicy(), config.getFloors()));
+        this.hallCalls = new HallCalls(config.getFloors());
+        this.waiting = new ArrayDeque[config.getFloors() + 1][2];
+        for (ArrayDeque<Passenger>[] floor : waiting) {
+            floor[0] = new ArrayDeque<>();
+            floor[1] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Runs until the configured duration, pulling arrivals from the iterator
+     * one at a time (they must come in time order).
+     */
+    public SimResult run(Iterator<Arrival> arrivals) {
+        scheduleNextArrival(arrivals);
+        while (!events.isEmpty()) {
+            Event event = events.poll();
+            if (event.time() > config.getDurationMillis()) {
+                break;
+            }
+            now = event.time();
+            event.action().run();
+        }
+        return new SimResult(config, Arrays.copyOf(waits, finished), Arrays.copyOf(journeys, finished),
+                started - finished, floorsTravelled, stops, reversals);
+    }
+
+    private void schedule(long at, Runnable action) {
+        events.add(new Event(at, seq++, action));
+    }
+
+    private void scheduleNextArrival(Iterator<Arrival> arrivals) {
+        while (arrivals.hasNext()) {
+            Arrival arrival = arrivals.next();
+            if (arrival.from() != arrival.to()) {
+                schedule(arrival.time(), () -> {
+                    passengerArrives(arrival);
+                    scheduleNextArrival(arrivals);
+                });
+                return;
+            }
+        }
+    }
+
+    private void passengerArrives(Arrival arrival) {
+        Passenger p = new Passenger(arrival);
+        started++;
+        Direction direction = Direction.between(p.from, p.to);
+        waiting[p.from][index(direction)].add(p);
+        if (hallCalls.register(p.from, direction)) {
+            dispatcher.hallCall(p.from, direction);
+        }
+    }
+
+    private void delivered(Passenger p) {
+        if (finished == waits.length) {
+            waits = Arrays.copyOf(waits, finished * 2);
+            journeys = Arrays.copyOf(journeys, finished * 2);
+        }
+        waits[finished] = p.boarded - p.arrived;
+        journeys[finished] = now - p.arrived;
+        finished++;
+    }
+
+    private static int index(Direction direction) {
+        return direction == Direction.UP ? 0 : 1;
+    }
+
+    /**
+     * One simulated car. Mirrors ElevatorPanel's step/arrive cycle; position
+     * and direction live in the fleet slot.
+     */
+    private final class Car implements CarView {
+        final int index;
+        final StopQueue stops = new StopQueue();
+        final List<Passenger> riders = new ArrayList<>();
+        Direction lastMove = Direction.IDLE;
+
+        Car(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int getCurrentFloor() {
+            return fleet.getFloor(index);
+        }
+
+        @Override
+        public Direction getTravelDirection() {
+            return fleet.getDirection(index);
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public int getStops(int[] into) {
+            return stops.toArray(into);
+        }
+
+        @Override
+        public void addStop(int floor, Direction direction) {
+            stops.addHallCall(floor, direction);
+            wake();
+        }
+
+        @Override
+        public void removeStop(int floor, Direction direction) {
+            stops.removeHallCall(floor, direction);
+        }
+
+        void wake() {
+            if (!fleet.isMoving(index) && !stops.isEmpty()) {
+                fleet.setMoving(index, true);
+                step();
+            }
+        }
+
+        void step() {
+            int floor = fleet.getFloor(index);
+            int next = stops.next(floor, fleet.getDirection(index));
+            fleet.setTarget(index, Math.max(FleetState.NONE, next));
+            if (next < 0) {
+                fleet.setMoving(index, false);
+                fleet.setDirection(index, Direction.IDLE);
+                return;
+            }
+            if (next == floor) {
+                arrive();
+                return;
+            }
+            Direction direction = Direction.between(floor, next);
+            fleet.setDirection(index, direction);
+            if (lastMove != Direction.IDLE && direction != lastMove) {
+                reversals++;
+            }
+            lastMove = direction;
+            int nextFloor = floor + (direction == Direction.UP ? 1 : -1);
+            schedule(now + config.getFloorMillis(), () -> {
+                fleet.setFloor(index, nextFloor);
+                floorsTravelled++;
+                step();
+            });
+        }
+
+        void arrive() {
+            int floor = fleet.getFloor(index);
+            Direction leaving = stops.serve(floor, fleet.getDirection(index));
+            fleet.setDirection(index, leaving);
+            Simulation.this.stops++;
+
+            for (Iterator<Passenger> it = riders.iterator(); it.hasNext(); ) {
+                Passenger p = it.next();
+                if (p.to == floor) {
+                    it.remove();
+                    delivered(p);
+                }
+            }
+            // Same rule as ElevatorAPI.carArrived: the leaving direction is
+            // answered, a car with nowhere to go answers both
+            if (leaving != Direction.DOWN) {
+                board(Direction.UP);
+            }
+            if (leaving != Direction.UP) {
+                board(Direction.DOWN);
+            }
+            dispatcher.reevaluate();
+            schedule(now + config.getDoorOpenMillis() + config.getAfterCloseMillis(), this::step);
+        }
+
+        private void board(Direction way) {
+            int floor = fleet.getFloor(index);
+            ArrayDeque<Passenger> queue = waiting[floor][Simulation.index(way)];
+            Passenger p;
+            while ((p = queue.pollFirst()) != null) {
+                p.boarded = now;
+                riders.add(p);
+                stops.addCarCall(p.to);
+            }
+            hallCalls.clear(floor, way);
+            dispatcher.callServed(index, floor, way);
+        }
+    }
+
+    /**
+     * Runs a simulated day for each dispatch policy and prints the results.
+     * Usage: java sim.Simulation [profile] [peakPerMinute]
+     */
+    public static void main(String[] args) {
+        TrafficProfile profile = TrafficProfile.named(args.length > 0 ? args[0] : "office-day");
+        double peakPerMinute = args.length > 1 ? Double.parseDouble(args[1]) : 20;
+        for (String policy : new String[]{"eta", "round-robin", "fixed"}) {
+            SimConfig config = new SimConfig().setPolicy(policy);
+            long start = System.nanoTime();
+            SimResult result = new Simulation(config).run(new TrafficGenerator(config, profile, peakPerMinute));
+            System.out.println(result);
+            System.out.printf("  (%d ms)%n", (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
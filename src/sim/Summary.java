@@ -0,0 +1,133 @@
+package sim;
+
+/**
+ * Aggregate of many runs of one configuration.
+ * Wait and journey times from every passenger go into histograms; each run's
+ * mean wait and mean journey also go into running mean/variance totals, which
+ * give the confidence intervals (runs are independent, passengers within a
+ * run are not). Summaries of the same configuration merge, so each worker
+ * builds its own and they are combined afterwards.
+ */
+public class Summary {
+
+    // Normal quantile for a two-sided 95% interval
+    private static final double Z_95 = 1.96;
+
+    private final SimConfig config;
+    private final Histogram waits = new Histogram();
+    private final Histogram journeys = new Histogram();
+    private final RunningStats meanWaits = new RunningStats();
+    private final RunningStats meanJourneys = new RunningStats();
+    private long unfinished;
+
+    Summary(SimConfig config) {
+        this.config = config;
+    }
+
+    void add(SimResult result) {
+        waits.recordAll(result.waits());
+        journeys.recordAll(result.journeys());
+        meanWaits.add(result.getMeanWaitMillis());
+        meanJourneys.add(result.getMeanJourneyMillis());
+        unfinished += result.getUnfinished();
+    }
+
+    void merge(Summary other) {
+        waits.merge(other.waits);
+        journeys.merge(other.journeys);
+        meanWaits.merge(other.meanWaits);
+        meanJourneys.merge(other.meanJourneys);
+        unfinished += other.unfinished;
+    }
+
+    public SimConfig getConfig() {
+        return config;
+    }
+
+    public long getRuns() {
+        return meanWaits.count;
+    }
+
+    public long getUnfinished() {
+        return unfinished;
+    }
+
+    /**
+     * Passenger wait times over all runs.
+     */
+    public Histogram getWaits() {
+        return waits;
+    }
+
+    public Histogram getJourneys() {
+        return journeys;
+    }
+
+    /**
+     * Mean over runs of each run's average wait.
+     */
+    public double getMeanWaitMillis() {
+        return meanWaits.mean;
+    }
+
+    /**
+     * Half-width of the 95% confidence interval for getMeanWaitMillis().
+     */
+    public double getMeanWaitCiMillis() {
+        return meanWaits.halfWidth();
+    }
+
+    public double getMeanJourneyMillis() {
+        return meanJourneys.mean;
+    }
+
+    public double getMeanJourneyCiMillis() {
+        return meanJourneys.halfWidth();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s, %d runs: wait %.2f +/- %.2f s (p50 %.1f p95 %.1f p99 %.1f)"
+                        + " | journey %.2f +/- %.2f s (p95 %.1f)",
+                config, getRuns(),
+                getMeanWaitMillis() / 1000, getMeanWaitCiMillis() / 1000,
+                waits.percentile(50) / 1000.0, waits.percentile(95) / 1000.0, waits.percentile(99) / 1000.0,
+                getMeanJourneyMillis() / 1000, getMeanJourneyCiMillis() / 1000,
+                journeys.percentile(95) / 1000.0);
+    }
+
+    /**
+     * Welford running mean and variance, with the pairwise merge so partial
+     * totals from different threads combine exactly.
+     */
+    private static final class RunningStats {
+        long count;
+        double mean;
+        double m2;
+
+        void add(double x) {
+            count++;
+            double delta = x - mean;
+            mean += delta / count;
+            m2 += delta * (x - mean);
+        }
+
+        void merge(RunningStats other) {
+            if (other.count == 0) {
+                return;
+            }
+            long n = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / n;
+            m2 += other.m2 + delta * delta * count * other.count / n;
+            count = n;
+        }
+
+        double halfWidth() {
+            if (count < 2) {
+                return Double.NaN;
+            }
+            return Z_95 * Math.sqrt(m2 / (count - 1) / count);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package sim;
+
+import Message.Channels;
+import Message.Commands;
+import Message.Message;
+import bus.SoftwareBus;
+import dispatch.Direction;
+
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Endless, seeded stream of passenger arrivals following a TrafficProfile.
+ * Arrivals are a non-homogeneous Poisson process made by thinning: candidates
+ * come at the profile's peak rate and each is kept with probability
+ * rate(t) / peak. Nothing is precomputed, so memory stays constant however
+ * long the stream is read, and the same seed always gives the same stream.
+ *
+ * Floor 1 is the lobby. Times are millis from the start of the stream.
+ */
+public class TrafficGenerator implements Iterator<Arrival> {
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final int floors;
+    private final TrafficProfile profile;
+    private final double peakPerMilli;
+    private final long startOfDayMillis;
+    private final SplittableRandom random;
+    private double time;
+
+    /**
+     * @param peakPerMinute passengers per minute at the profile's busiest
+     * @param startOfDayMillis time of day (millis since midnight) the stream starts at
+     */
+    public TrafficGenerator(int floors, TrafficProfile profile, double peakPerMinute,
+                            long startOfDayMillis, long seed) {
+        if (floors < 2) {
+            throw new IllegalArgumentException("Traffic needs at least 2 floors");
+        }
+        if (peakPerMinute <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + peakPerMinute);
+        }
+        this.floors = floors;
+        this.profile = profile;
+        this.peakPerMilli = peakPerMinute / 60_000.0 / profile.rate(peakTime(profile));
+        this.startOfDayMillis = startOfDayMillis;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * A day from midnight, using the config's floors and seed.
+     */
+    public TrafficGenerator(SimConfig config, TrafficProfile profile, double peakPerMinute) {
+        this(config.getFloors(), profile, peakPerMinute, 0, config.getSeed());
+    }
+
+    @Override
+    public boolean hasNext() {
+        return true;
+    }
+
+    @Override
+    public Arrival next() {
+        double maxPerMilli = peakPerMilli * profile.maxRate();
+        long timeOfDay;
+        do {
+            time += -Math.log(1 - random.nextDouble()) / maxPerMilli;
+            timeOfDay = (startOfDayMillis + (long) time) % DAY_MILLIS;
+        } while (random.nextDouble() * profile.maxRate() >= profile.rate(timeOfDay));
+
+        int from;
+        int to;
+        switch (profile.trip(timeOfDay, random.nextDouble(), random.nextDouble())) {
+            case INCOMING -> {
+                from = 1;
+                to = 2 + random.nextInt(floors - 1);
+            }
+            case OUTGOING -> {
+                from = 2 + random.nextInt(floors - 1);
+                to = 1;
+            }
+            default -> {
+                from = 1 + random.nextInt(floors);
+                to = 1 + random.nextInt(floors - 1);
+                if (to >= from) {
+                    to++;
+                }
+            }
+        }
+        return new Arrival((long) time, from, to);
+    }
+
+    // Time of day the profile is busiest, sampled every minute
+    private static long peakTime(TrafficProfile profile) {
+        long best = 0;
+        for (long t = 0; t < DAY_MILLIS; t += 60_000) {
+            if (profile.rate(t) > profile.rate(best)) {
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Feeds arrivals to the consumer in real time (speedup 1) or faster,
+     * blocking the calling thread until the stream ends or it is interrupted.
+     */
+    public static void play(Iterator<Arrival> arrivals, double speedup, Consumer<Arrival> consumer)
+            throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (arrivals.hasNext()) {
+            Arrival arrival = arrivals.next();
+            long wait = start + (long) (arrival.time() / speedup) - System.currentTimeMillis();
+            if (wait > 0) {
+                Thread.sleep(wait);
+            }
+            consumer.accept(arrival);
+        }
+    }
+
+    /**
+     * Consumer that presses the hall call for each arrival by publishing a
+     * HALL_CALL command on the system channel. Destinations are not sent;
+     * the bus has no car-call command.
+     */
+    public static Consumer<Arrival> toBus(SoftwareBus bus) {
+        return arrival -> {
+            Direction direction = Direction.between(arrival.from(), arrival.to());
+            int arg = Commands.hallCallArg(arrival.from(), direction.code());
+            bus.publish(new Message(Channels.SYSTEM, 0, Commands.encode(Commands.HALL_CALL, arg)));
+        };
+    }
+}
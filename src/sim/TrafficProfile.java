@@ -0,0 +1,110 @@
+package sim;
+
+/**
+ * Passenger traffic shapes over an office day.
+ * Each profile is a sum of bumps in the arrival rate (peak at the given hour,
+ * spread by sigma). Each bump has its own split of incoming trips (lobby to
+ * a floor), outgoing trips (a floor to the lobby) and interfloor trips.
+ * Rates are relative; TrafficGenerator scales them to passengers per minute.
+ */
+public enum TrafficProfile {
+    /** Morning arrivals, mostly lobby to upper floors. */
+    UP_PEAK(new Bump(8.5, 0.5, 1.0, 0.85, 0.05)),
+    /** Evening departures, mostly upper floors to the lobby. */
+    DOWN_PEAK(new Bump(17.25, 0.5, 1.0, 0.05, 0.85)),
+    /** Out and back around midday. */
+    LUNCH(new Bump(12.5, 0.75, 1.0, 0.40, 0.40)),
+    /** Steady trips between floors through working hours. */
+    INTERFLOOR(new Bump(13, 3, 1.0, 0.10, 0.10)),
+    /** All of the above at their usual relative weights. */
+    OFFICE_DAY(new Bump(8.5, 0.5, 1.0, 0.85, 0.05),
+            new Bump(12.5, 0.75, 0.6, 0.40, 0.40),
+            new Bump(13, 3, 0.25, 0.10, 0.10),
+            new Bump(17.25, 0.5, 0.9, 0.05, 0.85));
+
+    private static final double HOUR_MILLIS = 60 * 60 * 1000;
+
+    /**
+     * Kind of trip a passenger takes.
+     */
+    enum Trip { INCOMING, OUTGOING, INTERFLOOR }
+
+    /**
+     * @param hour     time of day the bump peaks
+     * @param sigma    spread in hours
+     * @param weight   relative rate at the peak
+     * @param incoming share of trips from the lobby
+     * @param outgoing share of trips to the lobby; the rest are interfloor
+     */
+    private record Bump(double hour, double sigma, double weight, double incoming, double outgoing) {
+        double rate(double hourOfDay) {
+            double d = (hourOfDay - hour) / sigma;
+            return weight * Math.exp(-0.5 * d * d);
+        }
+
+        Trip trip(double u) {
+            if (u < incoming) {
+                return Trip.INCOMING;
+            }
+            return u < incoming + outgoing ? Trip.OUTGOING : Trip.INTERFLOOR;
+        }
+    }
+
+    private final Bump[] bumps;
+    private final double maxRate;
+
+    TrafficProfile(Bump... bumps) {
+        this.bumps = bumps;
+        double sum = 0;
+        for (Bump bump : bumps) {
+            sum += bump.weight();
+        }
+        this.maxRate = sum;
+    }
+
+    /**
+     * Relative arrival rate at a time of day (millis since midnight).
+     */
+    double rate(long timeOfDayMillis) {
+        double hour = timeOfDayMillis / HOUR_MILLIS;
+        double sum = 0;
+        for (Bump bump : bumps) {
+            sum += bump.rate(hour);
+        }
+        return sum;
+    }
+
+    /**
+     * Upper bound on rate(), for thinning.
+     */
+    double maxRate() {
+        return maxRate;
+    }
+
+    /**
+     * Picks the kind of trip for a passenger arriving at this time; u and v
+     * are uniform in [0, 1).
+     */
+    Trip trip(long timeOfDayMillis, double u, double v) {
+        double hour = timeOfDayMillis / HOUR_MILLIS;
+        double pick = u * rate(timeOfDayMillis);
+        for (Bump bump : bumps) {
+            pick -= bump.rate(hour);
+            if (pick < 0) {
+                return bump.trip(v);
+            }
+        }
+        return bumps[bumps.length - 1].trip(v);
+    }
+
+    /**
+     * Profile by name, case-insensitive, '-' and '_' both accepted.
+     */
+    public static TrafficProfile named(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown traffic profile: " + name);
+        }
+    }
+}